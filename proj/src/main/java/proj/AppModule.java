@@ -1,5 +1,7 @@
 package proj;
 
+import restx.config.ConfigLoader;
+import restx.config.ConfigSupplier;
 import restx.factory.Module;
 import restx.factory.Provides;
 
@@ -13,4 +15,9 @@ public class AppModule {
     public String sqlAlternate() {
         return "true";
     }
+
+    @Provides
+    public ConfigSupplier appConfigSupplier(ConfigLoader configLoader) {
+        return configLoader.fromResource("proj/settings");
+    }
 }
@@ -1,11 +1,14 @@
 package proj.dao;
 
 import org.skife.jdbi.v2.sqlobject.SqlQuery;
+import org.skife.jdbi.v2.sqlobject.customizers.RegisterMapper;
 import proj.domain.TestObj;
+import proj.domain.TestObjResultSetMapper;
 import restx.factory.SqlComponent;
 
 import java.util.List;
 
+@RegisterMapper(TestObjResultSetMapper.class)
 @SqlComponent
 public abstract class TestConcreteDao1 implements TestAbstractDao {
 
@@ -1,20 +1,47 @@
 package proj.dao;
 
 import proj.domain.TestObj;
-import proj.mapper.TestObjMapper;
+import proj.domain.TestObjResultSetMapper;
 import org.skife.jdbi.v2.sqlobject.Bind;
 import org.skife.jdbi.v2.sqlobject.SqlQuery;
 import org.skife.jdbi.v2.sqlobject.SqlUpdate;
 import org.skife.jdbi.v2.sqlobject.customizers.RegisterMapper;
 import restx.factory.SqlComponent;
+import restx.sql.CachedQuery;
+import restx.sql.KeysetPage;
+import restx.sql.KeysetPaged;
+import restx.sql.PageCursor;
+import restx.sql.PageSize;
+import restx.sql.SqlCopyIn;
+import restx.sql.SqlCopyOut;
+import restx.sql.WritesTables;
 
-@RegisterMapper(TestObjMapper.class)
+import java.io.Writer;
+import java.util.concurrent.CompletableFuture;
+
+@RegisterMapper(TestObjResultSetMapper.class)
 @SqlComponent
 public abstract class TestDao {
 
+    @CachedQuery(tables = "test_obj")
     @SqlQuery("SELECT * from test_obj")
     public abstract TestObj find();
 
-    @SqlUpdate("INSERT INTO test_obj VALUES (:label)")
+    @KeysetPaged(keys = {"label", "id"})
+    @SqlQuery("SELECT * from test_obj")
+    public abstract KeysetPage<TestObj> page(@PageCursor String cursor, @PageSize Integer size);
+
+    @SqlQuery("SELECT count(*) from test_obj")
+    public abstract CompletableFuture<Integer> countAsync();
+
+    @WritesTables("test_obj")
+    @SqlUpdate("INSERT INTO test_obj (label) VALUES (:label)")
     public abstract void insert(@Bind("label") String label);
+
+    @WritesTables("test_obj")
+    @SqlCopyIn(table = "test_obj", columns = "label")
+    public abstract long insertAll(Iterable<TestObj> objs);
+
+    @SqlCopyOut("COPY test_obj TO STDOUT WITH (FORMAT csv, HEADER)")
+    public abstract long export(Writer out);
 }
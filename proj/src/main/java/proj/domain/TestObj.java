@@ -1,9 +1,21 @@
 package proj.domain;
 
+import restx.sql.GenerateMapper;
+
+@GenerateMapper
 public class TestObj {
 
+    private long id;
     private String label;
 
+    public long getId() {
+        return id;
+    }
+
+    public void setId(long id) {
+        this.id = id;
+    }
+
     public String getLabel() {
         return label;
     }
@@ -1,5 +1,6 @@
 package proj.rest;
 
+import com.google.common.base.Optional;
 import proj.domain.TestObj;
 import proj.service.AlternateService;
 import proj.service.TestMultipleDaosService;
@@ -9,6 +10,7 @@ import restx.annotations.POST;
 import restx.annotations.RestxResource;
 import restx.factory.Component;
 import restx.security.PermitAll;
+import restx.sql.KeysetPage;
 
 @RestxResource("/test")
 @Component
@@ -31,6 +33,12 @@ public class TestResource {
         return testService.find();
     }
 
+    @PermitAll
+    @GET("/page")
+    public KeysetPage<TestObj> page(Optional<String> cursor, Optional<Integer> size) {
+        return testService.page(cursor.orNull(), size.orNull());
+    }
+
     @PermitAll
     @POST("")
     public void insertTwoLines() {
@@ -1,8 +1,11 @@
 package proj.service;
 
 import proj.dao.TestDao;
+import proj.domain.TestObj;
 import org.skife.jdbi.v2.sqlobject.Transaction;
 import restx.factory.SqlComponent;
+import restx.sql.BatchedUpdates;
+import restx.sql.KeysetPage;
 
 @SqlComponent
 public class TestService extends BaseService {
@@ -13,6 +16,11 @@ public class TestService extends BaseService {
         this.testDao = testDao;
     }
 
+    public KeysetPage<TestObj> page(String cursor, Integer size) {
+        return testDao.page(cursor, size);
+    }
+
+    @BatchedUpdates
     @Transaction
     public void insertTwoLines() {
         testDao.insert("toto");
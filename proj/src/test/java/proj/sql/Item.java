@@ -0,0 +1,26 @@
+package proj.sql;
+
+import restx.sql.GenerateMapper;
+
+@GenerateMapper
+public class Item {
+
+    private long id;
+    private String label;
+
+    public long getId() {
+        return id;
+    }
+
+    public void setId(long id) {
+        this.id = id;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public void setLabel(String label) {
+        this.label = label;
+    }
+}
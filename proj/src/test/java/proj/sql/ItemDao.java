@@ -0,0 +1,85 @@
+package proj.sql;
+
+import org.skife.jdbi.v2.sqlobject.Bind;
+import org.skife.jdbi.v2.sqlobject.BindBean;
+import org.skife.jdbi.v2.sqlobject.SqlQuery;
+import org.skife.jdbi.v2.sqlobject.SqlUpdate;
+import org.skife.jdbi.v2.sqlobject.Transaction;
+import org.skife.jdbi.v2.sqlobject.customizers.RegisterMapper;
+import restx.factory.SqlComponent;
+import restx.sql.BatchedUpdates;
+import restx.sql.CachedQuery;
+import restx.sql.KeysetPage;
+import restx.sql.KeysetPaged;
+import restx.sql.PageCursor;
+import restx.sql.RetryTransaction;
+import restx.sql.WritesTables;
+
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * SQL component exercising the generated dispatch of {@link SqlComponentH2Test}.
+ */
+@RegisterMapper(ItemResultSetMapper.class)
+@SqlComponent
+public abstract class ItemDao {
+
+    @SqlQuery("SELECT label FROM item WHERE id = :id")
+    public abstract String label(@Bind("id") long id);
+
+    @SqlQuery("SELECT COUNT(*) FROM item")
+    public abstract int count();
+
+    @CachedQuery(tables = "item")
+    @SqlQuery("SELECT COUNT(*) FROM item")
+    public abstract int cachedCount();
+
+    @WritesTables("item")
+    @SqlUpdate("INSERT INTO item (id, label) VALUES (:id, :label)")
+    public abstract void insert(@Bind("id") long id, @Bind("label") String label);
+
+    @WritesTables("item")
+    @SqlUpdate("INSERT INTO item (id, label) VALUES (:item.id, :item.label)")
+    public abstract void insert(@BindBean("item") Item item);
+
+    @KeysetPaged(keys = "id", defaultSize = 2)
+    @SqlQuery("SELECT id, label FROM item")
+    public abstract KeysetPage<Item> page(@PageCursor String cursor);
+
+    @Transaction
+    public void insertAndFail(long id) {
+        insert(id, "rolled back");
+        throw new IllegalStateException("failed after the insert");
+    }
+
+    /**
+     * Inserts the items with a single bean, changed after each call.
+     *
+     * @return the count read in the transaction, once the pending batch is flushed
+     */
+    @BatchedUpdates
+    @Transaction
+    public int insertBatched(int items) {
+        Item item = new Item();
+        for (int i = 1; i <= items; i++) {
+            item.setId(i);
+            item.setLabel("item " + i);
+            insert(item);
+        }
+        return count();
+    }
+
+    /**
+     * Fails with a serialization failure on the first attempt.
+     */
+    @RetryTransaction(backoff = 0, maxBackoff = 0)
+    @Transaction
+    public int insertRetried(long id, AtomicInteger attempts) {
+        insert(id, "attempt " + attempts.incrementAndGet());
+        if (attempts.get() == 1) {
+            throw new IllegalStateException(new SQLException("could not serialize access", "40001"));
+        }
+        return count();
+    }
+}
@@ -0,0 +1,145 @@
+package proj.sql;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.skife.jdbi.v2.DBI;
+import org.skife.jdbi.v2.Handle;
+import org.skife.jdbi.v2.sqlobject.PublicOnDemandHandleDing;
+import restx.sql.InvalidCursorException;
+import restx.sql.KeysetPage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Runs the sql object generated for {@link ItemDao} on an in-memory H2 database.
+ */
+public class SqlComponentH2Test {
+
+    private DBI dbi;
+    private ItemDao dao;
+
+    @Before
+    public void setUp() {
+        dbi = new DBI("jdbc:h2:mem:restx-sql-test;DB_CLOSE_DELAY=-1");
+        execute("CREATE TABLE item (id BIGINT PRIMARY KEY, label VARCHAR(64))");
+        dao = new ItemDaoSqlObject(new PublicOnDemandHandleDing(dbi));
+    }
+
+    @After
+    public void tearDown() {
+        execute("DROP TABLE item");
+    }
+
+    @Test
+    public void should_dispatch_queries_and_updates() {
+        dao.insert(1, "first");
+        Item item = new Item();
+        item.setId(2);
+        item.setLabel("second");
+        dao.insert(item);
+
+        assertEquals("first", dao.label(1));
+        assertEquals("second", dao.label(2));
+        assertNull(dao.label(3));
+        assertEquals(2, dao.count());
+    }
+
+    @Test
+    public void should_roll_back_failed_transactions() {
+        try {
+            dao.insertAndFail(1);
+            fail("the transaction should have failed");
+        } catch (IllegalStateException e) {
+            assertEquals("failed after the insert", e.getMessage());
+        }
+
+        assertEquals(0, dao.count());
+    }
+
+    @Test
+    public void should_flush_batched_updates_before_other_calls() {
+        assertEquals(5, dao.insertBatched(5));
+
+        // the bean was bound by each call, not at the flush
+        assertEquals("item 1", dao.label(1));
+        assertEquals("item 5", dao.label(5));
+    }
+
+    @Test
+    public void should_invalidate_cached_queries_on_writes() {
+        dao.insert(1, "first");
+        assertEquals(1, dao.cachedCount());
+
+        // writes made outside of the SQL components don't invalidate the cache
+        execute("INSERT INTO item (id, label) VALUES (2, 'second')");
+        assertEquals(1, dao.cachedCount());
+        assertEquals(2, dao.count());
+
+        dao.insert(3, "third");
+        assertEquals(3, dao.cachedCount());
+    }
+
+    @Test
+    public void should_retry_transactions_failing_with_retryable_states() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        assertEquals(1, dao.insertRetried(1, attempts));
+
+        assertEquals(2, attempts.get());
+        assertEquals("attempt 2", dao.label(1));
+    }
+
+    @Test
+    public void should_page_by_keyset() {
+        for (int i = 5; i >= 1; i--) {
+            dao.insert(i, "item " + i);
+        }
+
+        List<Long> ids = new ArrayList<>();
+        List<Integer> sizes = new ArrayList<>();
+        String cursor = null;
+        do {
+            KeysetPage<Item> page = dao.page(cursor);
+            for (Item item : page.getRows()) {
+                ids.add(item.getId());
+            }
+            sizes.add(page.getRows().size());
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+
+        assertEquals("[1, 2, 3, 4, 5]", ids.toString());
+        assertEquals("[2, 2, 1]", sizes.toString());
+    }
+
+    @Test
+    public void should_reject_malformed_page_cursors() {
+        dao.insert(1, "first");
+        KeysetPage<Item> page = dao.page(null);
+        assertFalse(page.hasNext());
+
+        try {
+            dao.page("@@not a cursor");
+            fail("the cursor should have been rejected");
+        } catch (InvalidCursorException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("malformed"));
+        }
+    }
+
+    private void execute(String sql) {
+        Handle handle = dbi.open();
+        try {
+            handle.execute(sql);
+        } finally {
+            handle.close();
+        }
+    }
+}
@@ -1,10 +1,307 @@
 package org.skife.jdbi.v2.sqlobject;
 
 import org.skife.jdbi.v2.IDBI;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import restx.sql.SqlShardStrategy;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class PublicOnDemandHandleDing extends OnDemandHandleDing {
 
+    public enum ReplicaSelection {
+        LEAST_OUTSTANDING, ROUND_ROBIN
+    }
+
+    private static final Logger logger = LoggerFactory.getLogger(PublicOnDemandHandleDing.class);
+    private static final String REQUEST_RETENTION = "restx-request";
+
+    private final ThreadLocal<RequestScope> requestScope = new ThreadLocal<>();
+    // number of retentions of the primary handle by the current thread
+    private final ThreadLocal<int[]> primaryRetentions = ThreadLocal.withInitial(() -> new int[1]);
+    private final ReplicaDing[] replicas;
+    private final ReplicaSelection replicaSelection;
+    private final AtomicInteger nextReplica = new AtomicInteger();
+    private final List<PublicOnDemandHandleDing> shards;
+    private final SqlShardStrategy shardStrategy;
+    // shard of the transaction run by the current thread, which all the sharded calls of the thread use
+    private final ThreadLocal<PublicOnDemandHandleDing> pinnedShard = new ThreadLocal<>();
+    private final Executor asyncExecutor;
+    // ding whose request scope tracks the results left open by the calls of this one, itself unless it is a shard
+    private final PublicOnDemandHandleDing root;
+
     public PublicOnDemandHandleDing(IDBI dbi) {
+        this(dbi, Collections.<IDBI>emptyList(), ReplicaSelection.ROUND_ROBIN);
+    }
+
+    public PublicOnDemandHandleDing(IDBI dbi, List<? extends IDBI> replicas, ReplicaSelection replicaSelection) {
+        this(dbi, replicas, replicaSelection, Collections.<IDBI>emptyList(), null);
+    }
+
+    public PublicOnDemandHandleDing(IDBI dbi, List<? extends IDBI> replicas, ReplicaSelection replicaSelection,
+                                    List<? extends IDBI> shards, SqlShardStrategy shardStrategy) {
+        this(dbi, replicas, replicaSelection, shards, shardStrategy, null);
+    }
+
+    /**
+     * @param asyncExecutor the executor of the asynchronous calls and of the calls made on all the shards,
+     *                      null to run the latter in the calling thread and reject the former
+     */
+    public PublicOnDemandHandleDing(IDBI dbi, List<? extends IDBI> replicas, ReplicaSelection replicaSelection,
+                                    List<? extends IDBI> shards, SqlShardStrategy shardStrategy,
+                                    Executor asyncExecutor) {
+        this(dbi, replicas, replicaSelection, shards, shardStrategy, asyncExecutor, null);
+    }
+
+    private PublicOnDemandHandleDing(IDBI dbi, List<? extends IDBI> replicas, ReplicaSelection replicaSelection,
+                                     List<? extends IDBI> shards, SqlShardStrategy shardStrategy,
+                                     Executor asyncExecutor, PublicOnDemandHandleDing root) {
         super(dbi);
+        this.root = root == null ? this : root;
+        this.replicas = new ReplicaDing[replicas.size()];
+        for (int i = 0; i < this.replicas.length; i++) {
+            this.replicas[i] = new ReplicaDing(replicas.get(i), this.root);
+        }
+        this.replicaSelection = replicaSelection;
+        List<PublicOnDemandHandleDing> shardDings = new ArrayList<>(shards.size());
+        for (IDBI shard : shards) {
+            shardDings.add(new PublicOnDemandHandleDing(shard, Collections.<IDBI>emptyList(), replicaSelection,
+                    Collections.<IDBI>emptyList(), null, asyncExecutor, this.root));
+        }
+        this.shards = Collections.unmodifiableList(shardDings);
+        this.shardStrategy = shardStrategy;
+        this.asyncExecutor = asyncExecutor;
+    }
+
+    public boolean hasReplicas() {
+        return replicas.length > 0;
+    }
+
+    /**
+     * Starts a request scope for the current thread, until {@link #endRequestScope()}.
+     *
+     * Once a call has used the primary in a request scope, all the following reads of the request stay on it.
+     * When shareHandle is true, all the calls share a single primary handle, opened by the first call only.
+     */
+    public void beginRequestScope(boolean shareHandle) {
+        if (requestScope.get() == null) {
+            requestScope.set(new RequestScope(shareHandle));
+        }
+    }
+
+    /**
+     * Ends the request scope of the current thread.
+     *
+     * Results left open by the calls of the request, e.g. a returned Stream neither consumed nor closed, are closed
+     * and their transaction rolled back, so that they don't keep the handle of the thread.
+     */
+    public void endRequestScope() {
+        RequestScope scope = requestScope.get();
+        if (scope == null) {
+            return;
+        }
+        try {
+            for (Closeable results : new ArrayList<>(scope.openResults)) {
+                logger.warn("closing results left open at the end of the request: {}", results);
+                try {
+                    results.close();
+                } catch (IOException | RuntimeException e) {
+                    logger.warn("unable to close results left open at the end of the request", e);
+                }
+            }
+        } finally {
+            requestScope.remove();
+            if (scope.retained) {
+                super.release(REQUEST_RETENTION);
+            }
+        }
+    }
+
+    /**
+     * Tracks results opened by a call on the given ding, until {@link #resultsClosed(HandleDing, Closeable)}:
+     * they are closed by the end of the request scope of the current thread if they are still open.
+     */
+    static void resultsOpened(HandleDing ding, Closeable results) {
+        RequestScope scope = requestScopeOf(ding);
+        if (scope != null) {
+            scope.openResults.add(results);
+        }
+    }
+
+    static void resultsClosed(HandleDing ding, Closeable results) {
+        RequestScope scope = requestScopeOf(ding);
+        if (scope != null) {
+            scope.openResults.remove(results);
+        }
+    }
+
+    private static RequestScope requestScopeOf(HandleDing ding) {
+        PublicOnDemandHandleDing root;
+        if (ding instanceof PublicOnDemandHandleDing) {
+            root = ((PublicOnDemandHandleDing) ding).root;
+        } else if (ding instanceof ReplicaDing) {
+            root = ((ReplicaDing) ding).root;
+        } else {
+            return null;
+        }
+        return root.requestScope.get();
+    }
+
+    /**
+     * @return true if the current thread holds the primary handle, retained by a running call or by its request
+     * sharing it, so it may use it without opening it
+     */
+    boolean holdsHandle() {
+        if (primaryRetentions.get()[0] > 0) {
+            return true;
+        }
+        RequestScope scope = requestScope.get();
+        return scope != null && scope.retained;
+    }
+
+    /**
+     * @return true if the current thread runs a transaction, with the primary handle or on one of the shards
+     */
+    public boolean inTransaction() {
+        // a shard is pinned only while a transaction runs on it
+        return pinnedShard() != null || holdsHandle() && getHandle().isInTransaction();
+    }
+
+    /**
+     * @return the executor of the asynchronous calls, null if none was given
+     */
+    Executor asyncExecutor() {
+        return asyncExecutor;
+    }
+
+    /**
+     * @return the ding to use for a read: a replica, unless the current thread holds the primary handle,
+     * e.g. in a transaction, or has already used the primary in the current request
+     */
+    HandleDing forRead() {
+        if (replicas.length == 0 || primaryRetentions.get()[0] > 0) {
+            return this;
+        }
+        RequestScope scope = requestScope.get();
+        if (scope != null && scope.pinned) {
+            return this;
+        }
+
+        int start = Math.floorMod(nextReplica.getAndIncrement(), replicas.length);
+        ReplicaDing selected = replicas[start];
+        if (replicaSelection == ReplicaSelection.LEAST_OUTSTANDING) {
+            for (int i = 1; i < replicas.length; i++) {
+                ReplicaDing candidate = replicas[(start + i) % replicas.length];
+                if (candidate.outstanding.get() < selected.outstanding.get()) {
+                    selected = candidate;
+                }
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * @return the ding of the shard of the given key, chosen by the shard strategy
+     */
+    PublicOnDemandHandleDing shardFor(Object key) {
+        if (key == null) {
+            throw new IllegalArgumentException("shard key must not be null");
+        }
+        List<PublicOnDemandHandleDing> all = shards();
+        int shard = shardStrategy.shardOf(key, all.size());
+        if (shard < 0 || shard >= all.size()) {
+            throw new IllegalStateException(shardStrategy + " chose shard " + shard + " of " + all.size()
+                    + " for key " + key);
+        }
+        return all.get(shard);
+    }
+
+    /**
+     * @return the dings of all the shards, in the order of their names
+     */
+    List<PublicOnDemandHandleDing> shards() {
+        if (shards.isEmpty()) {
+            throw new IllegalStateException("no SqlShard component is provided to run sharded SQL components");
+        }
+        return shards;
+    }
+
+    /**
+     * @return the shard of the transaction run by the current thread, null if it runs none
+     */
+    PublicOnDemandHandleDing pinnedShard() {
+        return shards.isEmpty() ? null : pinnedShard.get();
+    }
+
+    /**
+     * Makes the current thread run all its sharded calls on the given shard, until {@link #unpinShard()}.
+     */
+    void pinShard(PublicOnDemandHandleDing shard) {
+        pinnedShard.set(shard);
+    }
+
+    void unpinShard() {
+        pinnedShard.remove();
+    }
+
+    @Override
+    public void retain(String name) {
+        RequestScope scope = requestScope.get();
+        if (scope != null) {
+            scope.pinned = true;
+            if (scope.shareHandle && !scope.retained) {
+                super.retain(REQUEST_RETENTION);
+                scope.retained = true;
+            }
+        }
+        super.retain(name);
+        primaryRetentions.get()[0]++;
+    }
+
+    @Override
+    public void release(String name) {
+        primaryRetentions.get()[0]--;
+        super.release(name);
+    }
+
+    private static final class RequestScope {
+        private final boolean shareHandle;
+        private final Set<Closeable> openResults = new LinkedHashSet<>();
+        private boolean retained;
+        private boolean pinned;
+
+        private RequestScope(boolean shareHandle) {
+            this.shareHandle = shareHandle;
+        }
+    }
+
+    private static final class ReplicaDing extends OnDemandHandleDing {
+        private final AtomicInteger outstanding = new AtomicInteger();
+        private final PublicOnDemandHandleDing root;
+
+        private ReplicaDing(IDBI dbi, PublicOnDemandHandleDing root) {
+            super(dbi);
+            this.root = root;
+        }
+
+        @Override
+        public void retain(String name) {
+            super.retain(name);
+            outstanding.incrementAndGet();
+        }
+
+        @Override
+        public void release(String name) {
+            outstanding.decrementAndGet();
+            super.release(name);
+        }
     }
 }
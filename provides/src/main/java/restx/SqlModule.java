@@ -1,18 +1,155 @@
 package restx;
 
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
 import org.skife.jdbi.v2.DBI;
+import org.skife.jdbi.v2.IDBI;
 import org.skife.jdbi.v2.sqlobject.PublicOnDemandHandleDing;
+import restx.factory.AutoStartable;
 import restx.factory.Module;
 import restx.factory.Provides;
+import restx.sql.HashShardStrategy;
+import restx.sql.RangeShardStrategy;
+import restx.sql.SqlAsyncExecutor;
+import restx.sql.SqlMetrics;
+import restx.sql.SqlMetricsSettings;
+import restx.sql.SqlPoolMetrics;
+import restx.sql.SqlPoolSettings;
+import restx.sql.SqlReplica;
+import restx.sql.SqlRoutingSettings;
+import restx.sql.SqlShard;
+import restx.sql.SqlShardSettings;
+import restx.sql.SqlShardStrategy;
+import restx.sql.SqlSlowQueries;
+import restx.sql.SqlStatementCache;
+import restx.sql.SqlStatementGuard;
+import restx.sql.SqlStatementSettings;
 
 import javax.inject.Named;
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
 
 @Module
 public class SqlModule {
 
     @Named("SqlHandleDing")
     @Provides
-    public PublicOnDemandHandleDing onDemandHandleDing(DBI dbi) {
-        return new PublicOnDemandHandleDing(dbi);
+    public PublicOnDemandHandleDing onDemandHandleDing(DBI dbi, Iterable<SqlReplica> replicas,
+                                                       Iterable<SqlShard> shards,
+                                                       SqlRoutingSettings settings,
+                                                       SqlShardStrategy shardStrategy,
+                                                       SqlStatementGuard statementGuard,
+                                                       SqlStatementSettings statementSettings,
+                                                       SqlAsyncExecutor asyncExecutor) {
+        configure(dbi, statementGuard, statementSettings);
+        List<IDBI> replicaDbis = new ArrayList<>();
+        for (SqlReplica replica : replicas) {
+            if (replica.getDbi() instanceof DBI) {
+                configure((DBI) replica.getDbi(), statementGuard, statementSettings);
+            }
+            replicaDbis.add(replica.getDbi());
+        }
+        List<SqlShard> sortedShards = new ArrayList<>();
+        shards.forEach(sortedShards::add);
+        sortedShards.sort(Comparator.comparing(SqlShard::getName));
+        List<IDBI> shardDbis = new ArrayList<>();
+        for (SqlShard shard : sortedShards) {
+            if (shard.getDbi() instanceof DBI) {
+                configure((DBI) shard.getDbi(), statementGuard, statementSettings);
+            }
+            shardDbis.add(shard.getDbi());
+        }
+        return new PublicOnDemandHandleDing(dbi, replicaDbis,
+                PublicOnDemandHandleDing.ReplicaSelection.valueOf(settings.replicaSelection()),
+                shardDbis, shardStrategy, asyncExecutor.getExecutor());
+    }
+
+    private static void configure(DBI dbi, SqlStatementGuard statementGuard, SqlStatementSettings settings) {
+        statementGuard.install(dbi);
+        dbi.define(SqlStatementSettings.STREAM_FETCH_SIZE, settings.streamFetchSize());
+    }
+
+    /**
+     * Strategy routing the calls of sharded SQL components, configured by the restx.sql.shards.* settings.
+     *
+     * It has a low priority, so an application providing its own "SqlShardStrategy" replaces it.
+     */
+    @Named("SqlShardStrategy")
+    @Provides(priority = 1000)
+    public SqlShardStrategy sqlShardStrategy(SqlShardSettings settings) {
+        switch (settings.strategy()) {
+            case "HASH":
+                return new HashShardStrategy();
+            case "RANGE":
+                return RangeShardStrategy.parse(settings.ranges());
+            default:
+                throw new IllegalArgumentException("unknown shard strategy " + settings.strategy()
+                        + ", must be HASH or RANGE");
+        }
+    }
+
+    @Named("SqlObjectsWarmup")
+    @Provides
+    public AutoStartable sqlObjectsWarmup(DBI dbi, SqlStatementSettings settings, SqlStatementCache statementCache) {
+        return settings.prepareAtStartup() ? new SqlObjectsWarmup(dbi, statementCache) : new SqlObjectsWarmup();
+    }
+
+    @Named("SqlStatementCache")
+    @Provides
+    public SqlStatementCache sqlStatementCache(SqlStatementSettings settings) {
+        return new SqlStatementCache(settings.cacheSize());
+    }
+
+    @Named("SqlStatementGuard")
+    @Provides
+    public SqlStatementGuard sqlStatementGuard(SqlStatementSettings settings, SqlStatementCache statementCache) {
+        return new SqlStatementGuard(statementCache, settings.queryTimeout(), settings.requestDeadline());
+    }
+
+    /**
+     * Applies the restx.sql.metrics and restx.sql.slowQueries.* settings to the metrics of the SQL components,
+     * which are shared by all the factories.
+     */
+    @Named("SqlMetricsConfiguration")
+    @Provides
+    public AutoStartable sqlMetricsConfiguration(SqlMetricsSettings settings) {
+        return () -> {
+            SqlMetrics.getInstance().setEnabled(settings.enabled());
+            SqlSlowQueries.getInstance().configure(settings);
+        };
+    }
+
+    @Named("SqlPoolMetrics")
+    @Provides
+    public SqlPoolMetrics sqlPoolMetrics() {
+        return new SqlPoolMetrics();
+    }
+
+    /**
+     * Pooled DataSource configured by the restx.sql.* settings.
+     *
+     * It has a low priority, so an application providing its own "dataSource" replaces it.
+     */
+    @Named("dataSource")
+    @Provides(priority = 1000)
+    public DataSource dataSource(SqlPoolSettings settings, SqlStatementSettings statementSettings,
+                                 SqlPoolMetrics metrics) {
+        HikariConfig config = new HikariConfig();
+        config.setPoolName("restx-sql");
+        config.setJdbcUrl(settings.url());
+        config.setUsername(settings.user());
+        config.setPassword(settings.password());
+        config.setMinimumIdle(settings.minSize());
+        config.setMaximumPoolSize(settings.maxSize());
+        config.setConnectionTimeout(settings.acquisitionTimeout());
+        config.setMaxLifetime(settings.maxLifetime());
+        config.setLeakDetectionThreshold(settings.leakDetectionThreshold());
+        config.setMetricsTrackerFactory(metrics);
+        // the driver keeps the server side statements of each connection, reused by all its handles
+        SqlStatementCache.driverProperties(settings.url(), statementSettings.cacheSize(),
+                statementSettings.prepareThreshold()).forEach(config::addDataSourceProperty);
+        return new HikariDataSource(config);
     }
 }
@@ -0,0 +1,130 @@
+package restx;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Stopwatch;
+import com.google.common.io.Resources;
+import org.skife.jdbi.v2.DBI;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import restx.factory.AutoStartable;
+import restx.sql.SqlStartupProfile;
+import restx.sql.SqlStatementCache;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
+/**
+ * Initializes the sql objects generated for every SqlComponent when the factory starts, in parallel.
+ *
+ * The generated classes are found from the declared factory machines: {@code FooFactoryMachine} is backed by
+ * {@code FooSqlObject} when the component {@code Foo} is a SqlComponent. Initializing such a class resolves its
+ * handlers, the JVM guarantees it is done only once even if components are being created concurrently.
+ *
+ * When given a statement cache, the statements of the resolved handlers are then prepared against the database.
+ * The time spent building the slowest components is then logged, see {@link SqlStartupProfile}.
+ */
+public class SqlObjectsWarmup implements AutoStartable {
+
+    private static final Logger logger = LoggerFactory.getLogger(SqlObjectsWarmup.class);
+
+    private static final String MACHINES_DECLARATION = "META-INF/services/restx.factory.FactoryMachine";
+    private static final String MACHINE_SUFFIX = "FactoryMachine";
+    private static final String SQL_OBJECT_SUFFIX = "SqlObject";
+    private static final int REPORTED_COMPONENTS = 10;
+
+    private final DBI dbi;
+    private final SqlStatementCache statementCache;
+    private ClassLoader classLoader;
+
+    public SqlObjectsWarmup() {
+        this(null, null);
+    }
+
+    public SqlObjectsWarmup(DBI dbi, SqlStatementCache statementCache) {
+        this.dbi = dbi;
+        this.statementCache = statementCache;
+    }
+
+    @Override
+    public void start() {
+        Stopwatch stopwatch = Stopwatch.createStarted();
+        classLoader = Thread.currentThread().getContextClassLoader();
+        List<Class<?>> sqlObjects = findSqlObjects();
+
+        ForkJoinPool pool = new ForkJoinPool();
+        try {
+            pool.submit(() -> sqlObjects.parallelStream().forEach(this::initialize)).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("sql objects warmup interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("sql objects warmup failed", e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+
+        logger.info("{} sql objects warmed up in {} with parallelism {}",
+                sqlObjects.size(), stopwatch.stop(), pool.getParallelism());
+
+        if (statementCache != null) {
+            statementCache.prepareAll(dbi);
+        }
+        logger.info("{}", SqlStartupProfile.getInstance().report(REPORTED_COMPONENTS));
+    }
+
+    private void initialize(Class<?> sqlObject) {
+        try {
+            Class.forName(sqlObject.getName(), true, classLoader);
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private List<Class<?>> findSqlObjects() {
+        return findMachines().stream()
+                .filter(machine -> machine.endsWith(MACHINE_SUFFIX))
+                .map(machine -> machine.substring(0, machine.length() - MACHINE_SUFFIX.length()))
+                .map(this::findSqlObject)
+                .filter(sqlObject -> sqlObject != null)
+                .collect(Collectors.toList());
+    }
+
+    private Class<?> findSqlObject(String component) {
+        Class<?> sqlObject;
+        try {
+            sqlObject = Class.forName(component + SQL_OBJECT_SUFFIX, false, classLoader);
+        } catch (ClassNotFoundException | LinkageError e) {
+            return null;
+        }
+        boolean generated = sqlObject.getSuperclass() != null && sqlObject.getSuperclass().getName().equals(component)
+                || Arrays.stream(sqlObject.getInterfaces()).anyMatch(i -> i.getName().equals(component));
+        return generated ? sqlObject : null;
+    }
+
+    private Set<String> findMachines() {
+        try {
+            return Collections.list(classLoader.getResources(MACHINES_DECLARATION)).stream()
+                    .flatMap(url -> readLines(url).stream())
+                    .map(String::trim)
+                    .filter(line -> !line.isEmpty() && !line.startsWith("#"))
+                    .collect(Collectors.toSet());
+        } catch (IOException e) {
+            throw new IllegalStateException("unable to list factory machines", e);
+        }
+    }
+
+    private static List<String> readLines(URL url) {
+        try {
+            return Resources.readLines(url, Charsets.UTF_8);
+        } catch (IOException e) {
+            throw new IllegalStateException("unable to read " + url, e);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package restx.sql;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Runs a SQL method of a sharded component which has no {@link ShardKey} argument on all the shards, and merges
+ * their results.
+ *
+ * Without it, only the queries returning a collection run on all the shards; other queries and writes need a
+ * shard key. Writes run on each shard with a handle of its own: they are not atomic, the shards called before
+ * a failing one keep their writes.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface AllShards {
+
+    Merge value() default Merge.AUTO;
+
+    enum Merge {
+        /**
+         * Collections are concatenated, update counts summed and void methods return nothing;
+         * other results need an explicit merge.
+         */
+        AUTO,
+        /**
+         * The sum of the int or long results.
+         */
+        SUM,
+        /**
+         * The lowest of the non null results.
+         */
+        MIN,
+        /**
+         * The highest of the non null results.
+         */
+        MAX,
+        /**
+         * True if any of the boolean results is.
+         */
+        ANY,
+        /**
+         * The first non null, non absent result, in the order of the shards.
+         */
+        FIRST
+    }
+}
@@ -0,0 +1,20 @@
+package restx.sql;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Buffers the calls to void {@code @SqlUpdate} methods made in a {@code @Transaction} method into JDBC batches.
+ *
+ * Consecutive calls to the same method are sent in one batch, flushed when another SQL component method is called
+ * and before the commit. Errors of buffered updates are thus raised by the flush, not by the update call.
+ * Their arguments are bound by the update call: a bean given to a {@code @BindBean} parameter can be reused for the
+ * next call.
+ * Statements run directly on the handle don't flush the pending batch.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface BatchedUpdates {
+}
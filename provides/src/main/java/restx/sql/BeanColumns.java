@@ -0,0 +1,31 @@
+package restx.sql;
+
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.Locale;
+
+/**
+ * Column resolution used by the mappers generated for {@link GenerateMapper} beans.
+ */
+public final class BeanColumns {
+
+    private BeanColumns() {
+    }
+
+    /**
+     * @param properties the lower case names of the bean properties
+     * @return the index of the column of each property, 0 when it has none
+     */
+    public static int[] resolve(ResultSetMetaData metaData, String[] properties) throws SQLException {
+        int[] columns = new int[properties.length];
+        for (int i = 1; i <= metaData.getColumnCount(); i++) {
+            String label = metaData.getColumnLabel(i).replace("_", "").toLowerCase(Locale.ROOT);
+            for (int p = 0; p < properties.length; p++) {
+                if (columns[p] == 0 && properties[p].equals(label)) {
+                    columns[p] = i;
+                }
+            }
+        }
+        return columns;
+    }
+}
@@ -0,0 +1,28 @@
+package restx.sql;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Limits the concurrent calls of a SQL statement method, with a limit of its own instead of the one of its
+ * component, see {@code SqlComponent.maxConcurrentCalls()}.
+ *
+ * Calls over the limit wait up to {@code queueTimeout} milliseconds for a running one to end, then are rejected
+ * with a {@link SqlBulkheadFullException}. The permit is taken before the handle, so waiting calls hold no connection.
+ *
+ * A {@code Transaction} method takes a permit for the whole transaction. The calls made with a handle already held
+ * by the thread, in a transaction or a request sharing its handle, take none: they would wait holding a connection.
+ * Results returned from a {@link CachedQuery} cache take none either.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface Bulkhead {
+    int maxConcurrentCalls();
+
+    /**
+     * @return the maximum wait for a permit in milliseconds, 0 to reject the calls over the limit at once
+     */
+    long queueTimeout() default 0;
+}
@@ -0,0 +1,34 @@
+package restx.sql;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caches the results of a {@code @SqlQuery} method, by bound arguments, in a bounded in-process cache.
+ *
+ * Cached results are invalidated when a method annotated with {@link WritesTables} declaring one of the tables
+ * runs, and are shared between callers: they must not be modified.
+ * Queries run in a transaction bypass the cache, and cache misses are read from the primary rather than from a
+ * {@link ReadReplica}, whose lag could load rows older than the last invalidation.
+ *
+ * Only writes made through the SQL components of this JVM invalidate the cache: results stay stale until their
+ * {@link #ttl()} when the tables are written by other processes or by statements not annotated with
+ * {@link WritesTables}.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface CachedQuery {
+    /**
+     * @return the tables read by the query
+     */
+    String[] tables();
+
+    long ttl() default 60;
+
+    TimeUnit unit() default TimeUnit.SECONDS;
+
+    long maxSize() default 1000;
+}
@@ -0,0 +1,18 @@
+package restx.sql;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Generates at compile time a {@code <Bean>ResultSetMapper} for the annotated bean, to register on the SQL components
+ * returning it with {@code @RegisterMapper}.
+ *
+ * Columns are matched to the properties having a public setter or field like BeanMapper does, ignoring case and
+ * underscores, but they are resolved once per result set and the properties are set without reflection.
+ */
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.TYPE)
+public @interface GenerateMapper {
+}
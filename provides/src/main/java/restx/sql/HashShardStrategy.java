@@ -0,0 +1,41 @@
+package restx.sql;
+
+/**
+ * Spreads the keys evenly over the shards, by hash.
+ *
+ * The hash of a key must be the same in every JVM: integral numbers are hashed by value, enums by name, and other
+ * keys by their {@code hashCode()}, which is stable for strings and UUIDs but not for every type.
+ * Changing the number of shards moves most keys to another shard.
+ */
+public class HashShardStrategy implements SqlShardStrategy {
+
+    @Override
+    public int shardOf(Object key, int shards) {
+        long hash;
+        if (key instanceof Long || key instanceof Integer || key instanceof Short || key instanceof Byte) {
+            hash = ((Number) key).longValue();
+        } else if (key instanceof Enum) {
+            hash = ((Enum<?>) key).name().hashCode();
+        } else {
+            hash = key.hashCode();
+        }
+        return (int) Math.floorMod(mix(hash), (long) shards);
+    }
+
+    /**
+     * Murmur3 finalizer, so that sequential keys don't all land on neighbouring shards.
+     */
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return "HashShardStrategy";
+    }
+}
@@ -0,0 +1,14 @@
+package restx.sql;
+
+import restx.WebException;
+import restx.http.HttpStatus;
+
+/**
+ * Thrown by a {@link KeysetPaged} method given a cursor it did not return, answered with a 400 status.
+ */
+public class InvalidCursorException extends WebException {
+
+    public InvalidCursorException(String message) {
+        super(HttpStatus.BAD_REQUEST, message);
+    }
+}
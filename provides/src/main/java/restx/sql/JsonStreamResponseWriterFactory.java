@@ -0,0 +1,77 @@
+package restx.sql;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.google.common.base.Optional;
+import com.google.common.reflect.TypeToken;
+import restx.RestxContext;
+import restx.RestxRequest;
+import restx.RestxResponse;
+import restx.entity.AbstractEntityResponseWriter;
+import restx.entity.EntityResponseWriter;
+import restx.entity.EntityResponseWriterFactory;
+import restx.factory.Component;
+
+import javax.inject.Named;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.stream.Stream;
+
+/**
+ * Writes the {@link Stream} and {@link Iterator} results of resources as JSON arrays, element by element,
+ * so streamed query results are sent without being loaded in memory.
+ *
+ * The stream or iterator is closed once written, even when the client goes away, releasing its handle.
+ */
+@Component(priority = 900)
+public class JsonStreamResponseWriterFactory implements EntityResponseWriterFactory {
+
+    private final ObjectWriter writer;
+
+    public JsonStreamResponseWriterFactory(@Named("FrontObjectWriter") ObjectWriter writer) {
+        this.writer = writer.without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    @Override
+    public <T> Optional<? extends EntityResponseWriter<T>> mayBuildFor(Type valueType, String contentType) {
+        if (!contentType.toLowerCase(Locale.ENGLISH).startsWith("application/json")) {
+            return Optional.absent();
+        }
+        Class<?> rawType = TypeToken.of(valueType).getRawType();
+        if (!Stream.class.isAssignableFrom(rawType) && !Iterator.class.isAssignableFrom(rawType)) {
+            return Optional.absent();
+        }
+        return Optional.of(new AbstractEntityResponseWriter<T>(valueType, contentType) {
+            @Override
+            protected void write(T value, RestxRequest req, RestxResponse resp, RestxContext ctx) throws IOException {
+                writeArray(value, resp);
+            }
+        });
+    }
+
+    private void writeArray(Object value, RestxResponse resp) throws IOException {
+        try {
+            Iterator<?> elements = value instanceof Stream ? ((Stream<?>) value).iterator() : (Iterator<?>) value;
+            JsonGenerator generator = writer.getFactory().createGenerator(resp.getWriter());
+            generator.writeStartArray();
+            while (elements.hasNext()) {
+                writer.writeValue(generator, elements.next());
+            }
+            generator.writeEndArray();
+            generator.flush();
+        } finally {
+            if (value instanceof AutoCloseable) {
+                try {
+                    ((AutoCloseable) value).close();
+                } catch (IOException | RuntimeException e) {
+                    throw e;
+                } catch (Exception e) {
+                    throw new IOException(e);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package restx.sql;
+
+import java.util.List;
+
+/**
+ * A page of the rows of a {@link KeysetPaged} method.
+ *
+ * Its cursor is an opaque URL safe token, to be passed back as the {@link PageCursor} argument to get the next
+ * page, as is by REST resources.
+ */
+public class KeysetPage<T> {
+    private final List<T> rows;
+    private final String nextCursor;
+
+    public KeysetPage(List<T> rows, String nextCursor) {
+        this.rows = rows;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<T> getRows() {
+        return rows;
+    }
+
+    /**
+     * @return the cursor of the next page, null if this page is the last one
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+
+    @Override
+    public String toString() {
+        return "KeysetPage{rows=" + rows.size() + ", nextCursor='" + nextCursor + "'}";
+    }
+}
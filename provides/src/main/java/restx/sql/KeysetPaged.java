@@ -0,0 +1,77 @@
+package restx.sql;
+
+import org.skife.jdbi.v2.SQLStatement;
+import org.skife.jdbi.v2.sqlobject.SqlStatementCustomizer;
+import org.skife.jdbi.v2.sqlobject.SqlStatementCustomizerFactory;
+
+import java.lang.annotation.Annotation;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.lang.reflect.Method;
+
+/**
+ * Pages the rows of a {@code @SqlQuery} method returning a {@link KeysetPage} by keyset rather than by offset.
+ *
+ * The query is run as {@code SELECT * FROM (query) WHERE (k1, k2) > (:k1, :k2) ORDER BY k1, k2 LIMIT :size},
+ * the key values being the ones of the last row of the previous page, carried by its cursor. Deep pages cost the
+ * same as the first one, given an index on the keys. The keys are non null columns of the query which together
+ * identify a row, and properties of the mapped rows, unless the rows are the single key itself.
+ *
+ * The method takes the cursor of the previous page as a {@link PageCursor} argument, null for the first page,
+ * and optionally the requested size as a {@link PageSize} argument.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface KeysetPaged {
+    /**
+     * Together the keys must be unique, e.g. by ending with the primary key: rows sharing the key values of the
+     * last row of a page would be skipped by the next page.
+     *
+     * @return the columns ordering the rows, the last ones breaking the ties of the first ones
+     */
+    String[] keys();
+
+    /**
+     * @return true to page the rows in descending order of their keys
+     */
+    boolean descending() default false;
+
+    /**
+     * @return the size of the pages when no size is requested
+     */
+    int defaultSize() default 20;
+
+    /**
+     * @return the maximum size of the pages, larger requested sizes are capped to it
+     */
+    int maxSize() default 100;
+
+    /**
+     * Keeps the page arguments from being bound by position, they are bound by the keyset query itself.
+     */
+    class PageArgumentFactory implements SqlStatementCustomizerFactory {
+        private static final SqlStatementCustomizer NONE = new SqlStatementCustomizer() {
+            @Override
+            public void apply(SQLStatement q) {
+            }
+        };
+
+        @Override
+        public SqlStatementCustomizer createForMethod(Annotation annotation, Class sqlObjectType, Method method) {
+            throw new UnsupportedOperationException("page annotations only apply to arguments");
+        }
+
+        @Override
+        public SqlStatementCustomizer createForType(Annotation annotation, Class sqlObjectType) {
+            throw new UnsupportedOperationException("page annotations only apply to arguments");
+        }
+
+        @Override
+        public SqlStatementCustomizer createForParameter(Annotation annotation, Class sqlObjectType, Method method,
+                                                         Object arg) {
+            return NONE;
+        }
+    }
+}
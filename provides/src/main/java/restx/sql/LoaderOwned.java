@@ -0,0 +1,37 @@
+package restx.sql;
+
+import java.lang.ref.WeakReference;
+
+/**
+ * A registry entry along with the class loader of the component which registered it, held weakly so the entry
+ * can be evicted with the loader, see {@link SqlObjectCaches}.
+ */
+final class LoaderOwned<T> {
+    private final T value;
+    private final WeakReference<ClassLoader> classLoader;
+
+    LoaderOwned(T value, ClassLoader classLoader) {
+        this.value = value;
+        this.classLoader = new WeakReference<>(classLoader);
+    }
+
+    T get() {
+        return value;
+    }
+
+    /**
+     * @return this entry, or the same value owned by the given class loader when it is registered again by the
+     * classes of another one, e.g. after a hot reload
+     */
+    LoaderOwned<T> ownedBy(ClassLoader classLoader) {
+        return this.classLoader.get() == classLoader ? this : new LoaderOwned<>(value, classLoader);
+    }
+
+    /**
+     * @return true if the entry belongs to the given class loader or one of its descendants, or to a collected one
+     */
+    boolean isOwnedBy(ClassLoader ancestor) {
+        ClassLoader loader = classLoader.get();
+        return loader == null || SqlObjectCaches.isDescendant(loader, ancestor);
+    }
+}
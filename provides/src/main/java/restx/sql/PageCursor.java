@@ -0,0 +1,19 @@
+package restx.sql;
+
+import org.skife.jdbi.v2.sqlobject.SqlStatementCustomizingAnnotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks the {@code String} argument of a {@link KeysetPaged} method taking the cursor of the previous page,
+ * null or empty for the first page. Cursors which were not returned by the same method are rejected with an
+ * {@link InvalidCursorException}.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.PARAMETER)
+@SqlStatementCustomizingAnnotation(KeysetPaged.PageArgumentFactory.class)
+public @interface PageCursor {
+}
@@ -0,0 +1,18 @@
+package restx.sql;
+
+import org.skife.jdbi.v2.sqlobject.SqlStatementCustomizingAnnotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks the {@code int} or {@code Integer} argument of a {@link KeysetPaged} method taking the requested size of
+ * the page: null or not positive for the default size, capped to the maximum size.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.PARAMETER)
+@SqlStatementCustomizingAnnotation(KeysetPaged.PageArgumentFactory.class)
+public @interface PageSize {
+}
@@ -0,0 +1,85 @@
+package restx.sql;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Assigns contiguous ranges of keys to the shards: shard i holds the keys lower than the i-th upper bound and not
+ * lower than the previous one, the last shard holds the keys not lower than the last bound.
+ *
+ * Integral numbers are compared by value whatever their type, other keys must be comparable with the bounds.
+ */
+public class RangeShardStrategy implements SqlShardStrategy {
+    private final Comparable<?>[] upperBounds;
+
+    public RangeShardStrategy(Comparable<?>... upperBounds) {
+        this.upperBounds = upperBounds.clone();
+        for (int i = 1; i < this.upperBounds.length; i++) {
+            if (compare(this.upperBounds[i - 1], this.upperBounds[i]) >= 0) {
+                throw new IllegalArgumentException("shard upper bounds must be increasing: "
+                        + Arrays.toString(upperBounds));
+            }
+        }
+    }
+
+    /**
+     * @param ranges the comma separated upper bounds, parsed as numbers when they all are
+     */
+    public static RangeShardStrategy parse(String ranges) {
+        List<String> bounds = new ArrayList<>();
+        for (String bound : ranges.split(",")) {
+            if (!bound.trim().isEmpty()) {
+                bounds.add(bound.trim());
+            }
+        }
+        try {
+            Long[] numbers = new Long[bounds.size()];
+            for (int i = 0; i < numbers.length; i++) {
+                numbers[i] = Long.valueOf(bounds.get(i));
+            }
+            return new RangeShardStrategy(numbers);
+        } catch (NumberFormatException e) {
+            return new RangeShardStrategy(bounds.toArray(new String[bounds.size()]));
+        }
+    }
+
+    @Override
+    public int shardOf(Object key, int shards) {
+        if (upperBounds.length != shards - 1) {
+            throw new IllegalStateException(upperBounds.length + " shard upper bounds for " + shards
+                    + " shards, there must be one less bound than shards");
+        }
+        int low = 0;
+        int high = upperBounds.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (compare(key, upperBounds[middle]) < 0) {
+                high = middle;
+            } else {
+                low = middle + 1;
+            }
+        }
+        return low;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static int compare(Object key, Object bound) {
+        if (isIntegral(key) && isIntegral(bound)) {
+            return Long.compare(((Number) key).longValue(), ((Number) bound).longValue());
+        }
+        if (!(key instanceof Comparable)) {
+            throw new IllegalArgumentException("shard key " + key + " is not comparable with the shard bounds");
+        }
+        return ((Comparable<Object>) key).compareTo(bound);
+    }
+
+    private static boolean isIntegral(Object value) {
+        return value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte;
+    }
+
+    @Override
+    public String toString() {
+        return "RangeShardStrategy" + Arrays.toString(upperBounds);
+    }
+}
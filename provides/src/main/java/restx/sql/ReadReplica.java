@@ -0,0 +1,19 @@
+package restx.sql;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Tells whether a SQL component method can be run on a read replica.
+ *
+ * {@code @SqlQuery} methods go to replicas by default, use {@code @ReadReplica(false)} to keep one on the primary.
+ * Other methods, e.g. a {@code @SqlCall} of a read only procedure, go to replicas only when annotated.
+ * {@link CachedQuery} methods always run on the primary.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface ReadReplica {
+    boolean value() default true;
+}
@@ -0,0 +1,35 @@
+package restx.sql;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Runs a {@code @Transaction} method again when it fails with one of the given SQL states.
+ *
+ * The defaults retry Postgres serialization failures and deadlocks. Attempts are spaced by an exponential backoff
+ * with full jitter: the n-th retry waits a random time up to {@code min(maxBackoff, backoff * 2^(n-1))}.
+ * Only the outermost transaction is retried, the whole method being run again: it must not have side effects
+ * outside of the database. On a SQL component, applies to all its {@code @Transaction} methods.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.METHOD, ElementType.TYPE})
+public @interface RetryTransaction {
+    /**
+     * @return the maximum number of runs of the method, first one included
+     */
+    int maxAttempts() default 3;
+
+    /**
+     * @return the upper bound of the wait before the first retry, in milliseconds
+     */
+    long backoff() default 20;
+
+    /**
+     * @return the upper bound of the wait before any retry, in milliseconds
+     */
+    long maxBackoff() default 1000;
+
+    String[] sqlStates() default {"40001", "40P01"};
+}
@@ -0,0 +1,19 @@
+package restx.sql;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks the argument routing the calls of a method of a sharded SQL component to a shard.
+ *
+ * The shard is chosen by the {@link SqlShardStrategy} from the value of the argument, which must not be null.
+ * A {@code @Transaction} method runs on the shard of its key, along with all the calls it makes: their keys must
+ * belong to the same shard.
+ * See {@code SqlComponent#sharded()}.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.PARAMETER)
+public @interface ShardKey {
+}
@@ -0,0 +1,101 @@
+package restx.sql;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import restx.factory.Component;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Executor running the SQL component methods returning a {@code CompletableFuture}, each call with its own handle.
+ *
+ * Its size is set by the {@link SqlAsyncSettings}: at most {@code restx.sql.async.queueSize} calls wait for a
+ * thread, beyond that calls fail with a {@link RejectedExecutionException}.
+ * Each factory has its own executor, shut down with it, which SqlModule gives to the handle ding of the factory.
+ * The statements of the tasks are tracked by the {@link SqlStatementGuard} as part of the request submitting them.
+ */
+@Component
+public class SqlAsyncExecutor implements AutoCloseable {
+
+    private final ThreadPoolExecutor executor;
+    private final Executor requestExecutor;
+    private final LongAdder rejected = new LongAdder();
+
+    public SqlAsyncExecutor(SqlAsyncSettings settings, SqlStatementGuard statementGuard) {
+        this.executor = new ThreadPoolExecutor(settings.threads(), settings.threads(), 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(settings.queueSize()),
+                new ThreadFactoryBuilder().setNameFormat("restx-sql-async-%d").setDaemon(true).build(),
+                (task, executor) -> {
+                    if (executor.isShutdown()) {
+                        throw new RejectedExecutionException("SqlAsyncExecutor is closed");
+                    }
+                    rejected.increment();
+                    throw new RejectedExecutionException("too many pending SQL calls, "
+                            + executor.getQueue().size() + " are waiting");
+                });
+        this.executor.allowCoreThreadTimeOut(true);
+        this.requestExecutor = statementGuard.isTrackingRequests()
+                ? task -> executor.execute(statementGuard.inCurrentRequest(task))
+                : executor;
+    }
+
+    public Executor getExecutor() {
+        return requestExecutor;
+    }
+
+    public Snapshot snapshot() {
+        return new Snapshot(executor.getMaximumPoolSize(), executor.getActiveCount(), executor.getQueue().size(),
+                executor.getCompletedTaskCount(), rejected.sum());
+    }
+
+    /**
+     * Stops the executor once the calls already submitted are done, new calls are rejected.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+
+    /**
+     * Immutable view of the executor state.
+     */
+    public static class Snapshot {
+        private final int threads;
+        private final int active;
+        private final int queued;
+        private final long completed;
+        private final long rejected;
+
+        Snapshot(int threads, int active, int queued, long completed, long rejected) {
+            this.threads = threads;
+            this.active = active;
+            this.queued = queued;
+            this.completed = completed;
+            this.rejected = rejected;
+        }
+
+        public int getThreads() {
+            return threads;
+        }
+
+        public int getActive() {
+            return active;
+        }
+
+        public int getQueued() {
+            return queued;
+        }
+
+        public long getCompleted() {
+            return completed;
+        }
+
+        public long getRejected() {
+            return rejected;
+        }
+    }
+}
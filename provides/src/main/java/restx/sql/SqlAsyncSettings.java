@@ -0,0 +1,18 @@
+package restx.sql;
+
+import restx.config.Settings;
+import restx.config.SettingsKey;
+
+@Settings
+public interface SqlAsyncSettings {
+
+    @SettingsKey(key = "restx.sql.async.threads", defaultValue = "5",
+            doc = "number of threads running the SQL calls returning a CompletableFuture, the calls made on all"
+                    + " the shards and the SqlFanOut calls, each one using its own handle: keep it below"
+                    + " restx.sql.pool.maxSize, so that request threads still get connections")
+    int threads();
+
+    @SettingsKey(key = "restx.sql.async.queueSize", defaultValue = "1000",
+            doc = "maximum number of asynchronous SQL calls waiting for a thread, beyond that calls are rejected")
+    int queueSize();
+}
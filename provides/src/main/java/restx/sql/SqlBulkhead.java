@@ -0,0 +1,178 @@
+package restx.sql;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Limit of the concurrent calls of a SQL component, or of one of its methods, with its rejection and queue time
+ * metrics.
+ *
+ * Permits are given in arrival order to the calls waiting for one.
+ */
+public class SqlBulkhead {
+
+    private final String name;
+    private final int maxConcurrentCalls;
+    private final long queueTimeoutNanos;
+    private final Semaphore permits;
+
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder queued = new LongAdder();
+    private final LongAdder rejections = new LongAdder();
+    private final LongAdder queueNanos = new LongAdder();
+    private final AtomicLong maxQueueNanos = new AtomicLong();
+
+    /**
+     * @param queueTimeout the maximum wait for a permit in milliseconds, 0 to not wait
+     */
+    public SqlBulkhead(String name, int maxConcurrentCalls, long queueTimeout) {
+        this.name = name;
+        this.maxConcurrentCalls = maxConcurrentCalls;
+        this.queueTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(queueTimeout);
+        this.permits = new Semaphore(maxConcurrentCalls, true);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    boolean hasLimits(int maxConcurrentCalls, long queueTimeout) {
+        return this.maxConcurrentCalls == maxConcurrentCalls
+                && queueTimeoutNanos == TimeUnit.MILLISECONDS.toNanos(queueTimeout);
+    }
+
+    /**
+     * Takes a permit, waiting for one up to the queue timeout.
+     *
+     * @throws SqlBulkheadFullException if no permit was given in time
+     */
+    public void acquire() {
+        // a timed attempt, unlike an untimed one, does not take a permit ahead of the waiting calls
+        if (tryAcquire(0)) {
+            calls.increment();
+            return;
+        }
+        if (queueTimeoutNanos > 0) {
+            long start = System.nanoTime();
+            boolean acquired = tryAcquire(queueTimeoutNanos);
+            long nanos = System.nanoTime() - start;
+            queued.increment();
+            queueNanos.add(nanos);
+            maxQueueNanos.accumulateAndGet(nanos, Math::max);
+            if (acquired) {
+                calls.increment();
+                return;
+            }
+        }
+        rejections.increment();
+        throw new SqlBulkheadFullException(name, maxConcurrentCalls);
+    }
+
+    private boolean tryAcquire(long timeoutNanos) {
+        try {
+            return permits.tryAcquire(timeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    public void release() {
+        permits.release();
+    }
+
+    public void reset() {
+        calls.reset();
+        queued.reset();
+        rejections.reset();
+        queueNanos.reset();
+        maxQueueNanos.set(0);
+    }
+
+    public Snapshot snapshot() {
+        return new Snapshot(name, maxConcurrentCalls, TimeUnit.NANOSECONDS.toMillis(queueTimeoutNanos),
+                maxConcurrentCalls - permits.availablePermits(), permits.getQueueLength(),
+                calls.sum(), queued.sum(), rejections.sum(), queueNanos.sum(), maxQueueNanos.get());
+    }
+
+    /**
+     * Immutable view of the usage of a bulkhead, durations are in microseconds.
+     */
+    public static class Snapshot {
+        private final String name;
+        private final int maxConcurrentCalls;
+        private final long queueTimeout;
+        private final int inFlight;
+        private final int waiting;
+        private final long calls;
+        private final long queued;
+        private final long rejections;
+        private final long queueNanos;
+        private final long maxQueueNanos;
+
+        Snapshot(String name, int maxConcurrentCalls, long queueTimeout, int inFlight, int waiting,
+                 long calls, long queued, long rejections, long queueNanos, long maxQueueNanos) {
+            this.name = name;
+            this.maxConcurrentCalls = maxConcurrentCalls;
+            this.queueTimeout = queueTimeout;
+            this.inFlight = inFlight;
+            this.waiting = waiting;
+            this.calls = calls;
+            this.queued = queued;
+            this.rejections = rejections;
+            this.queueNanos = queueNanos;
+            this.maxQueueNanos = maxQueueNanos;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getMaxConcurrentCalls() {
+            return maxConcurrentCalls;
+        }
+
+        /**
+         * @return the maximum wait for a permit in milliseconds
+         */
+        public long getQueueTimeout() {
+            return queueTimeout;
+        }
+
+        public int getInFlight() {
+            return inFlight;
+        }
+
+        public int getWaiting() {
+            return waiting;
+        }
+
+        /**
+         * @return the number of calls given a permit
+         */
+        public long getCalls() {
+            return calls;
+        }
+
+        /**
+         * @return the number of calls which waited for a permit, given one or not
+         */
+        public long getQueued() {
+            return queued;
+        }
+
+        public long getRejections() {
+            return rejections;
+        }
+
+        public long getMeanQueueTime() {
+            return queued == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(queueNanos / queued);
+        }
+
+        public long getMaxQueueTime() {
+            return TimeUnit.NANOSECONDS.toMicros(maxQueueNanos);
+        }
+    }
+}
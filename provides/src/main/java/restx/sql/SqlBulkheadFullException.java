@@ -0,0 +1,21 @@
+package restx.sql;
+
+import restx.WebException;
+import restx.http.HttpStatus;
+
+/**
+ * Thrown by a SQL component call rejected by its {@link SqlBulkhead}, answered with a 503 status.
+ */
+public class SqlBulkheadFullException extends WebException {
+    private final String bulkhead;
+
+    public SqlBulkheadFullException(String bulkhead, int maxConcurrentCalls) {
+        super(HttpStatus.SERVICE_UNAVAILABLE,
+                "too many concurrent calls to " + bulkhead + ", limited to " + maxConcurrentCalls);
+        this.bulkhead = bulkhead;
+    }
+
+    public String getBulkhead() {
+        return bulkhead;
+    }
+}
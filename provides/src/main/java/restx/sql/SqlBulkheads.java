@@ -0,0 +1,53 @@
+package restx.sql;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Collectors;
+
+/**
+ * Registry of the bulkheads of the SQL components and methods, by name.
+ */
+public class SqlBulkheads {
+
+    private static final SqlBulkheads INSTANCE = new SqlBulkheads();
+
+    public static SqlBulkheads getInstance() {
+        return INSTANCE;
+    }
+
+    private final ConcurrentMap<String, LoaderOwned<SqlBulkhead>> bulkheads = new ConcurrentHashMap<>();
+
+    SqlBulkheads() {
+    }
+
+    /**
+     * @return the bulkhead of the given name, replaced if its limits changed, e.g. after a hot reload
+     */
+    public SqlBulkhead register(Class<?> component, String name, int maxConcurrentCalls, long queueTimeout) {
+        ClassLoader classLoader = component.getClassLoader();
+        return bulkheads.compute(name, (key, owned) -> owned != null
+                && owned.get().hasLimits(maxConcurrentCalls, queueTimeout)
+                ? owned.ownedBy(classLoader)
+                : new LoaderOwned<>(new SqlBulkhead(name, maxConcurrentCalls, queueTimeout), classLoader)).get();
+    }
+
+    /**
+     * Drops the bulkheads of the components of the given class loader and its descendants.
+     */
+    public void evict(ClassLoader classLoader) {
+        bulkheads.values().removeIf(owned -> owned.isOwnedBy(classLoader));
+    }
+
+    public List<SqlBulkhead.Snapshot> snapshot() {
+        return bulkheads.values().stream()
+                .map(owned -> owned.get().snapshot())
+                .sorted(Comparator.comparing(SqlBulkhead.Snapshot::getName))
+                .collect(Collectors.toList());
+    }
+
+    public void reset() {
+        bulkheads.values().forEach(owned -> owned.get().reset());
+    }
+}
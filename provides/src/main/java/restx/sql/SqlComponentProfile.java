@@ -0,0 +1,169 @@
+package restx.sql;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Time spent building a single SQL component, see {@link SqlStartupProfile}.
+ */
+public class SqlComponentProfile {
+
+    public enum Stage {
+        /**
+         * Resolution of the members of the component type by classmate.
+         */
+        RESOLVE,
+        /**
+         * Construction of the handlers of the methods, detailed per handler type.
+         */
+        HANDLERS,
+        /**
+         * Construction of the table of the methods: metrics, statements and bulkheads registration.
+         */
+        METHODS,
+        /**
+         * Creation of the instances, constructor arguments included.
+         */
+        INSTANTIATE
+    }
+
+    private final String component;
+    private volatile String machine;
+    private final Map<Stage, LongAdder> stages = new EnumMap<>(Stage.class);
+    private final LongAdder instances = new LongAdder();
+    private final ConcurrentMap<String, LongAdder[]> handlers = new ConcurrentHashMap<>();
+
+    public SqlComponentProfile(String component) {
+        this.component = component;
+        for (Stage stage : Stage.values()) {
+            stages.put(stage, new LongAdder());
+        }
+    }
+
+    public String getComponent() {
+        return component;
+    }
+
+    void setMachine(String machine) {
+        this.machine = machine;
+    }
+
+    public void record(Stage stage, long nanos) {
+        stages.get(stage).add(nanos);
+        if (stage == Stage.INSTANTIATE) {
+            instances.increment();
+        }
+    }
+
+    /**
+     * Records the construction of a handler, its time is also added to the {@link Stage#HANDLERS} stage.
+     */
+    public void handlerBuilt(String type, long nanos) {
+        LongAdder[] counters = handlers.computeIfAbsent(type,
+                key -> new LongAdder[]{new LongAdder(), new LongAdder()});
+        counters[0].increment();
+        counters[1].add(nanos);
+        record(Stage.HANDLERS, nanos);
+    }
+
+    public Snapshot snapshot() {
+        Map<Stage, Long> stageTimes = new EnumMap<>(Stage.class);
+        long total = 0;
+        for (Map.Entry<Stage, LongAdder> stage : stages.entrySet()) {
+            long nanos = stage.getValue().sum();
+            if (nanos > 0) {
+                stageTimes.put(stage.getKey(), TimeUnit.NANOSECONDS.toMicros(nanos));
+                total += nanos;
+            }
+        }
+        List<HandlerTime> handlerTimes = new ArrayList<>();
+        for (Map.Entry<String, LongAdder[]> handler : handlers.entrySet()) {
+            handlerTimes.add(new HandlerTime(handler.getKey(), handler.getValue()[0].sum(),
+                    TimeUnit.NANOSECONDS.toMicros(handler.getValue()[1].sum())));
+        }
+        handlerTimes.sort(Comparator.comparingLong(HandlerTime::getTime).reversed());
+        return new Snapshot(component, machine, TimeUnit.NANOSECONDS.toMicros(total), instances.sum(),
+                Collections.unmodifiableMap(stageTimes), Collections.unmodifiableList(handlerTimes));
+    }
+
+    /**
+     * Immutable view of the profile of a component, durations are in microseconds.
+     */
+    public static class Snapshot {
+        private final String component;
+        private final String machine;
+        private final long totalTime;
+        private final long instances;
+        private final Map<Stage, Long> stages;
+        private final List<HandlerTime> handlers;
+
+        Snapshot(String component, String machine, long totalTime, long instances, Map<Stage, Long> stages,
+                 List<HandlerTime> handlers) {
+            this.component = component;
+            this.machine = machine;
+            this.totalTime = totalTime;
+            this.instances = instances;
+            this.stages = stages;
+            this.handlers = handlers;
+        }
+
+        public String getComponent() {
+            return component;
+        }
+
+        /**
+         * @return the factory machine creating the component, null if its instances are not created by one
+         */
+        public String getMachine() {
+            return machine;
+        }
+
+        public long getTotalTime() {
+            return totalTime;
+        }
+
+        public long getInstances() {
+            return instances;
+        }
+
+        public Map<Stage, Long> getStages() {
+            return stages;
+        }
+
+        public List<HandlerTime> getHandlers() {
+            return handlers;
+        }
+    }
+
+    public static class HandlerTime {
+        private final String type;
+        private final long count;
+        private final long time;
+
+        HandlerTime(String type, long count, long time) {
+            this.type = type;
+            this.count = count;
+            this.time = time;
+        }
+
+        public String getType() {
+            return type;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getTime() {
+            return time;
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package restx.sql;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Loads the beans given to the annotated method into a table with the Postgres {@code COPY ... FROM STDIN}
+ * command, much faster than inserting them one by one.
+ *
+ * The method takes a single {@code Iterable} or {@code Iterator} of beans, which is consumed while it is sent,
+ * and returns the number of rows copied as an int or a long, or nothing. Each column gets the value of the bean
+ * property of the same name, ignoring case and underscores, read with its public getter or field.
+ * Values are sent as text: they must be written by their {@code toString()} as Postgres reads them.
+ * {@code java.util.Date} and {@code java.sql.Timestamp} values are sent in the default time zone with its offset,
+ * so a {@code timestamptz} column gets their instant, and a {@code timestamp} one their local date and time, as
+ * when they are bound with JDBC.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface SqlCopyIn {
+    String table();
+
+    /**
+     * @return the copied columns, by default those of all the readable properties of the bean, in snake case
+     */
+    String[] columns() default {};
+}
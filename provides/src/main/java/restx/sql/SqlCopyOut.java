@@ -0,0 +1,19 @@
+package restx.sql;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Exports rows with the given Postgres {@code COPY ... TO STDOUT} command, streamed as the database sends them.
+ *
+ * The method takes a single {@code Writer} or {@code OutputStream}, which it doesn't close, and returns the number
+ * of rows copied as an int or a long, or nothing. The format is the one of the command, e.g.
+ * {@code COPY (SELECT * FROM t) TO STDOUT WITH (FORMAT csv, HEADER)}; COPY doesn't take bound parameters.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface SqlCopyOut {
+    String value();
+}
@@ -0,0 +1,190 @@
+package restx.sql;
+
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.UncheckedTimeoutException;
+import org.skife.jdbi.v2.sqlobject.PublicOnDemandHandleDing;
+import restx.factory.Component;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Calls all the implementations of a multi-bound SQL interface concurrently, and merges their results.
+ *
+ * Calls run on the {@link SqlAsyncExecutor}, each one with the handle of the thread running it, so they can't be
+ * made inside a transaction, which they would not be part of. The caller thread runs the calls not started yet by
+ * the executor, so a saturated executor only makes the calls sequential.
+ *
+ * Calls still running after the timeout are not interrupted, which could leave their connection in an unknown
+ * state: they end with the {@code restx.sql.statements.queryTimeout} of their statements,
+ * see {@link SqlStatementSettings}.
+ */
+@Component
+public class SqlFanOut {
+
+    public enum Ordering {
+        IMPLEMENTATION, COMPLETION
+    }
+
+    private final Executor executor;
+    private final PublicOnDemandHandleDing handleDing;
+    private final long timeout;
+    private final Ordering ordering;
+
+    public SqlFanOut(SqlAsyncExecutor asyncExecutor, PublicOnDemandHandleDing handleDing,
+                     SqlFanOutSettings settings) {
+        this.executor = asyncExecutor.getExecutor();
+        this.handleDing = handleDing;
+        this.timeout = settings.timeout();
+        this.ordering = Ordering.valueOf(settings.ordering());
+    }
+
+    /**
+     * Builds an implementation of the given interface calling all the given implementations.
+     *
+     * Methods returning a collection return the merged elements, in a set for Set return types,
+     * void methods return once all the calls are done. Other return types can't be merged.
+     */
+    public <T> T composite(Class<T> type, Iterable<? extends T> implementations) {
+        List<T> targets = new ArrayList<>();
+        for (T implementation : implementations) {
+            targets.add(implementation);
+        }
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type},
+                new CompositeInvocationHandler(type, targets)));
+    }
+
+    /**
+     * Calls the function with each implementation concurrently.
+     *
+     * The calls run by the current thread are not bounded by the timeout, but the ones not started yet once it
+     * expires are cancelled.
+     *
+     * @return the results, in the configured ordering
+     * @throws UncheckedTimeoutException if all the results are not received within the timeout
+     * @throws IllegalStateException if the current thread runs a transaction, which the calls would not be part of
+     */
+    public <T, R> List<R> callAll(Iterable<? extends T> implementations, Function<? super T, ? extends R> call) {
+        if (handleDing.inTransaction()) {
+            throw new IllegalStateException("fan-out calls can't be made inside a transaction,"
+                    + " they would run on other connections");
+        }
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+        List<FutureTask<R>> tasks = new ArrayList<>();
+        BlockingQueue<Future<R>> completed = new LinkedBlockingQueue<>();
+        try {
+            for (T implementation : implementations) {
+                FutureTask<R> task = new FutureTask<R>(() -> call.apply(implementation)) {
+                    @Override
+                    protected void done() {
+                        completed.add(this);
+                    }
+                };
+                tasks.add(task);
+                try {
+                    executor.execute(task);
+                } catch (RejectedExecutionException e) {
+                    // run below by the current thread
+                }
+            }
+            // from the last one, the executor takes them from the first one
+            for (int i = tasks.size() - 1; i >= 0 && System.nanoTime() - deadline < 0; i--) {
+                // does nothing if the executor has started the task
+                tasks.get(i).run();
+            }
+
+            List<R> results = new ArrayList<>(tasks.size());
+            for (int i = 0; i < tasks.size(); i++) {
+                Future<R> future = ordering == Ordering.COMPLETION
+                        ? completed.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)
+                        : tasks.get(i);
+                if (future == null) {
+                    throw new UncheckedTimeoutException("fan-out calls not done within " + timeout + "ms");
+                }
+                results.add(future.get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS));
+            }
+            return results;
+        } catch (java.util.concurrent.TimeoutException e) {
+            throw new UncheckedTimeoutException("fan-out calls not done within " + timeout + "ms", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while waiting for fan-out calls", e);
+        } catch (ExecutionException e) {
+            throw Throwables.propagate(e.getCause());
+        } finally {
+            for (FutureTask<R> task : tasks) {
+                task.cancel(false);
+            }
+        }
+    }
+
+    private class CompositeInvocationHandler implements InvocationHandler {
+        private final Class<?> type;
+        private final List<?> targets;
+
+        private CompositeInvocationHandler(Class<?> type, List<?> targets) {
+            this.type = type;
+            this.targets = targets;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (method.getDeclaringClass() == Object.class) {
+                switch (method.getName()) {
+                    case "equals":
+                        return proxy == args[0];
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    default:
+                        return "SqlFanOut{" + type.getName() + ", " + targets + "}";
+                }
+            }
+
+            Class<?> returnType = method.getReturnType();
+            if (returnType != void.class && !returnType.isAssignableFrom(List.class)
+                    && !returnType.isAssignableFrom(Set.class)) {
+                throw new UnsupportedOperationException("can't merge the " + returnType.getName()
+                        + " results of " + method);
+            }
+
+            List<Object> results = callAll(targets, target -> invokeTarget(method, target, args));
+            if (returnType == void.class) {
+                return null;
+            }
+            Collection<Object> merged = returnType.isAssignableFrom(List.class)
+                    ? new ArrayList<>() : new LinkedHashSet<>();
+            for (Object result : results) {
+                if (result != null) {
+                    merged.addAll((Collection<?>) result);
+                }
+            }
+            return merged;
+        }
+
+        private Object invokeTarget(Method method, Object target, Object[] args) {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw Throwables.propagate(e.getCause());
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package restx.sql;
+
+import restx.config.Settings;
+import restx.config.SettingsKey;
+
+@Settings
+public interface SqlFanOutSettings {
+
+    @SettingsKey(key = "restx.sql.fanout.timeout", defaultValue = "30000",
+            doc = "maximum time in milliseconds to wait for all the implementations called by a fan-out")
+    long timeout();
+
+    @SettingsKey(key = "restx.sql.fanout.ordering", defaultValue = "IMPLEMENTATION",
+            doc = "order of the merged results: IMPLEMENTATION (order of the implementations) or COMPLETION")
+    String ordering();
+}
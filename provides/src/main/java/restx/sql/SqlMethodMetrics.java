@@ -0,0 +1,159 @@
+package restx.sql;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Metrics of a single SQL component method.
+ *
+ * Recording doesn't allocate nor lock: counters are striped {@link LongAdder}s and latencies are counted in a
+ * {@link LatencyHistogram}.
+ */
+public class SqlMethodMetrics {
+
+    private final String component;
+    private final String method;
+
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder rows = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAdder acquisitionNanos = new LongAdder();
+    private final LatencyHistogram latencies = new LatencyHistogram();
+
+    public SqlMethodMetrics(String component, String method) {
+        this.component = component;
+        this.method = method;
+    }
+
+    public String getComponent() {
+        return component;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    /**
+     * @param nanos the duration of the call, handle acquisition included
+     * @param acquisitionNanos the time spent acquiring the handle
+     * @param rows the number of rows returned, 0 if not known
+     * @param error true if the call ended with an exception
+     */
+    public void record(long nanos, long acquisitionNanos, long rows, boolean error) {
+        calls.increment();
+        if (error) {
+            errors.increment();
+        }
+        this.rows.add(rows);
+        this.acquisitionNanos.add(acquisitionNanos);
+        totalNanos.add(nanos);
+        latencies.record(nanos);
+    }
+
+    /**
+     * Records a transaction run again after a failure, see {@link RetryTransaction}.
+     */
+    public void retried() {
+        retries.increment();
+    }
+
+    public void reset() {
+        calls.reset();
+        errors.reset();
+        retries.reset();
+        rows.reset();
+        totalNanos.reset();
+        acquisitionNanos.reset();
+        latencies.reset();
+    }
+
+    public Snapshot snapshot() {
+        long[] percentiles = latencies.percentiles(0.5, 0.99);
+        return new Snapshot(component, method,
+                calls.sum(), errors.sum(), retries.sum(), rows.sum(),
+                totalNanos.sum(), acquisitionNanos.sum(), latencies.getMax(),
+                percentiles[0], percentiles[1]);
+    }
+
+    /**
+     * Immutable view of the metrics of a method, durations are in microseconds.
+     */
+    public static class Snapshot {
+        private final String component;
+        private final String method;
+        private final long calls;
+        private final long errors;
+        private final long retries;
+        private final long rows;
+        private final long totalNanos;
+        private final long acquisitionNanos;
+        private final long maxNanos;
+        private final long p50Nanos;
+        private final long p99Nanos;
+
+        Snapshot(String component, String method, long calls, long errors, long retries, long rows,
+                 long totalNanos, long acquisitionNanos, long maxNanos, long p50Nanos, long p99Nanos) {
+            this.component = component;
+            this.method = method;
+            this.calls = calls;
+            this.errors = errors;
+            this.retries = retries;
+            this.rows = rows;
+            this.totalNanos = totalNanos;
+            this.acquisitionNanos = acquisitionNanos;
+            this.maxNanos = maxNanos;
+            this.p50Nanos = p50Nanos;
+            this.p99Nanos = p99Nanos;
+        }
+
+        public String getComponent() {
+            return component;
+        }
+
+        public String getMethod() {
+            return method;
+        }
+
+        public long getCalls() {
+            return calls;
+        }
+
+        public long getErrors() {
+            return errors;
+        }
+
+        public long getRetries() {
+            return retries;
+        }
+
+        public long getRows() {
+            return rows;
+        }
+
+        public long getTotalTime() {
+            return TimeUnit.NANOSECONDS.toMicros(totalNanos);
+        }
+
+        public long getMeanTime() {
+            return calls == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(totalNanos / calls);
+        }
+
+        public long getP50() {
+            return TimeUnit.NANOSECONDS.toMicros(p50Nanos);
+        }
+
+        public long getP99() {
+            return TimeUnit.NANOSECONDS.toMicros(p99Nanos);
+        }
+
+        public long getMax() {
+            return TimeUnit.NANOSECONDS.toMicros(maxNanos);
+        }
+
+        public long getMeanAcquisitionTime() {
+            return calls == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(acquisitionNanos / calls);
+        }
+    }
+}
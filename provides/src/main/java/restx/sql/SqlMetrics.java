@@ -0,0 +1,68 @@
+package restx.sql;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Collectors;
+
+/**
+ * Registry of the metrics of every SQL component method.
+ *
+ * Methods are registered once, when the handlers of their component are resolved, and the returned
+ * {@link SqlMethodMetrics} is kept next to the handler so recording never looks it up.
+ *
+ * Recording is enabled unless the {@code restx.sql.metrics} setting is false, see {@link SqlMetricsSettings}.
+ */
+public class SqlMetrics {
+
+    private static final SqlMetrics INSTANCE = new SqlMetrics(true);
+
+    public static SqlMetrics getInstance() {
+        return INSTANCE;
+    }
+
+    private final ConcurrentMap<String, LoaderOwned<SqlMethodMetrics>> methods = new ConcurrentHashMap<>();
+    private volatile boolean enabled;
+
+    SqlMetrics(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public SqlMethodMetrics register(Class<?> component, String method) {
+        String name = component.getName();
+        return methods.compute(name + "#" + method, (key, owned) -> owned == null
+                ? new LoaderOwned<>(new SqlMethodMetrics(name, method), component.getClassLoader())
+                : owned.ownedBy(component.getClassLoader())).get();
+    }
+
+    /**
+     * Drops the metrics of the components of the given class loader and its descendants.
+     */
+    public void evict(ClassLoader classLoader) {
+        methods.values().removeIf(owned -> owned.isOwnedBy(classLoader));
+    }
+
+    /**
+     * @return the metrics of the methods called at least once, the most time consuming first
+     */
+    public List<SqlMethodMetrics.Snapshot> snapshot() {
+        return methods.values().stream()
+                .map(owned -> owned.get().snapshot())
+                .filter(snapshot -> snapshot.getCalls() > 0)
+                .sorted(Comparator.comparingLong(SqlMethodMetrics.Snapshot::getTotalTime).reversed())
+                .collect(Collectors.toList());
+    }
+
+    public void reset() {
+        methods.values().forEach(owned -> owned.get().reset());
+    }
+}
@@ -0,0 +1,87 @@
+package restx.sql;
+
+import restx.annotations.DELETE;
+import restx.annotations.GET;
+import restx.annotations.RestxResource;
+import restx.factory.Component;
+
+import java.util.List;
+
+@RestxResource(group = "restx-admin")
+@Component
+public class SqlMetricsResource {
+
+    private final SqlMetrics metrics = SqlMetrics.getInstance();
+    private final SqlPoolMetrics poolMetrics;
+    private final SqlAsyncExecutor asyncExecutor;
+
+    public SqlMetricsResource(SqlPoolMetrics poolMetrics, SqlAsyncExecutor asyncExecutor) {
+        this.poolMetrics = poolMetrics;
+        this.asyncExecutor = asyncExecutor;
+    }
+
+    @GET("/@/sql/metrics")
+    public List<SqlMethodMetrics.Snapshot> metrics() {
+        return metrics.snapshot();
+    }
+
+    @DELETE("/@/sql/metrics")
+    public void reset() {
+        metrics.reset();
+    }
+
+    @GET("/@/sql/pool")
+    public SqlPoolMetrics.Snapshot pool() {
+        return poolMetrics.snapshot();
+    }
+
+    @DELETE("/@/sql/pool")
+    public void resetPool() {
+        poolMetrics.reset();
+    }
+
+    @GET("/@/sql/statements")
+    public SqlStatements.Snapshot statements() {
+        return SqlStatements.getInstance().snapshot();
+    }
+
+    @DELETE("/@/sql/statements")
+    public void resetStatements() {
+        SqlStatements.getInstance().reset();
+    }
+
+    @GET("/@/sql/slow-queries")
+    public List<SqlSlowQuery> slowQueries() {
+        return SqlSlowQueries.getInstance().snapshot();
+    }
+
+    @DELETE("/@/sql/slow-queries")
+    public void clearSlowQueries() {
+        SqlSlowQueries.getInstance().clear();
+    }
+
+    @GET("/@/sql/caches")
+    public SqlObjectCaches.Snapshot caches() {
+        return SqlObjectCaches.getInstance().snapshot();
+    }
+
+    @GET("/@/sql/bulkheads")
+    public List<SqlBulkhead.Snapshot> bulkheads() {
+        return SqlBulkheads.getInstance().snapshot();
+    }
+
+    @DELETE("/@/sql/bulkheads")
+    public void resetBulkheads() {
+        SqlBulkheads.getInstance().reset();
+    }
+
+    @GET("/@/sql/startup")
+    public List<SqlComponentProfile.Snapshot> startup() {
+        return SqlStartupProfile.getInstance().snapshot();
+    }
+
+    @GET("/@/sql/async")
+    public SqlAsyncExecutor.Snapshot async() {
+        return asyncExecutor.snapshot();
+    }
+}
@@ -0,0 +1,29 @@
+package restx.sql;
+
+import restx.config.Settings;
+import restx.config.SettingsKey;
+
+@Settings
+public interface SqlMetricsSettings {
+
+    @SettingsKey(key = "restx.sql.metrics", defaultValue = "true",
+            doc = "record the calls of the SQL component methods, see SqlMetrics")
+    boolean enabled();
+
+    @SettingsKey(key = "restx.sql.slowQueries.threshold", defaultValue = "1000",
+            doc = "minimum duration in milliseconds of the calls logged as slow queries, negative to disable the log")
+    long slowQueryThreshold();
+
+    @SettingsKey(key = "restx.sql.slowQueries.size", defaultValue = "100",
+            doc = "number of most recent slow queries kept")
+    int slowQueries();
+
+    @SettingsKey(key = "restx.sql.slowQueries.parameters", defaultValue = "true",
+            doc = "log the values bound to the slow queries, except those of @Redacted parameters")
+    boolean slowQueryParameters();
+
+    @SettingsKey(key = "restx.sql.slowQueries.explainThreshold", defaultValue = "-1",
+            doc = "minimum duration in milliseconds of the slow queries explained in the background,"
+                    + " negative to explain none")
+    long explainThreshold();
+}
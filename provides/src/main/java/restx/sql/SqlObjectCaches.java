@@ -0,0 +1,108 @@
+package restx.sql;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of what restx-sql caches for the SQL components: their handlers and the proxy classes built for them.
+ *
+ * Caches are kept per class loader. The ones of a reloadable class loader, e.g. the one of restx dev mode hot
+ * reload, are evicted when the last factory started with it is closed, so the loader can be collected.
+ */
+public class SqlObjectCaches {
+
+    private static final SqlObjectCaches INSTANCE = new SqlObjectCaches();
+
+    public static SqlObjectCaches getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * @return true if the given class loader is the ancestor one or one of its descendants
+     */
+    public static boolean isDescendant(ClassLoader classLoader, ClassLoader ancestor) {
+        for (ClassLoader loader = classLoader; loader != null; loader = loader.getParent()) {
+            if (loader == ancestor) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private final AtomicInteger classLoaders = new AtomicInteger();
+    private final AtomicInteger sqlObjectTypes = new AtomicInteger();
+    private final AtomicInteger handlers = new AtomicInteger();
+    private final AtomicInteger proxyClasses = new AtomicInteger();
+    private final LongAdder evictions = new LongAdder();
+
+    SqlObjectCaches() {
+    }
+
+    public void classLoaderAdded() {
+        classLoaders.incrementAndGet();
+    }
+
+    public void handlersAdded(int count) {
+        sqlObjectTypes.incrementAndGet();
+        handlers.addAndGet(count);
+    }
+
+    public void proxyClassAdded() {
+        proxyClasses.incrementAndGet();
+    }
+
+    /**
+     * Records the eviction of the caches of a class loader.
+     */
+    public void evicted(int sqlObjectTypes, int handlers, int proxyClasses) {
+        this.classLoaders.decrementAndGet();
+        this.sqlObjectTypes.addAndGet(-sqlObjectTypes);
+        this.handlers.addAndGet(-handlers);
+        this.proxyClasses.addAndGet(-proxyClasses);
+        evictions.increment();
+    }
+
+    public Snapshot snapshot() {
+        return new Snapshot(classLoaders.get(), sqlObjectTypes.get(), handlers.get(), proxyClasses.get(),
+                evictions.sum());
+    }
+
+    /**
+     * Immutable view of the counters.
+     */
+    public static class Snapshot {
+        private final int classLoaders;
+        private final int sqlObjectTypes;
+        private final int handlers;
+        private final int proxyClasses;
+        private final long evictions;
+
+        Snapshot(int classLoaders, int sqlObjectTypes, int handlers, int proxyClasses, long evictions) {
+            this.classLoaders = classLoaders;
+            this.sqlObjectTypes = sqlObjectTypes;
+            this.handlers = handlers;
+            this.proxyClasses = proxyClasses;
+            this.evictions = evictions;
+        }
+
+        public int getClassLoaders() {
+            return classLoaders;
+        }
+
+        public int getSqlObjectTypes() {
+            return sqlObjectTypes;
+        }
+
+        public int getHandlers() {
+            return handlers;
+        }
+
+        public int getProxyClasses() {
+            return proxyClasses;
+        }
+
+        public long getEvictions() {
+            return evictions;
+        }
+    }
+}
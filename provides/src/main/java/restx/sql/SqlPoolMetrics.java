@@ -0,0 +1,118 @@
+package restx.sql;
+
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Saturation metrics of the connection pool provided by SqlModule: connections state and acquisition wait times.
+ */
+public class SqlPoolMetrics implements MetricsTrackerFactory {
+
+    private final LatencyHistogram waits = new LatencyHistogram();
+    private final LongAdder acquisitions = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private volatile PoolStats poolStats;
+
+    @Override
+    public IMetricsTracker create(String poolName, PoolStats poolStats) {
+        this.poolStats = poolStats;
+        return new IMetricsTracker() {
+            @Override
+            public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+                acquisitions.increment();
+                waits.record(elapsedAcquiredNanos);
+            }
+
+            @Override
+            public void recordConnectionTimeout() {
+                timeouts.increment();
+            }
+        };
+    }
+
+    public void reset() {
+        waits.reset();
+        acquisitions.reset();
+        timeouts.reset();
+    }
+
+    public Snapshot snapshot() {
+        PoolStats stats = poolStats;
+        long[] percentiles = waits.percentiles(0.5, 0.99);
+        return new Snapshot(
+                stats == null ? 0 : stats.getActiveConnections(),
+                stats == null ? 0 : stats.getIdleConnections(),
+                stats == null ? 0 : stats.getPendingThreads(),
+                stats == null ? 0 : stats.getMaxConnections(),
+                acquisitions.sum(), timeouts.sum(),
+                percentiles[0], percentiles[1], waits.getMax());
+    }
+
+    /**
+     * Immutable view of the pool metrics, wait times are in microseconds.
+     */
+    public static class Snapshot {
+        private final int active;
+        private final int idle;
+        private final int waiting;
+        private final int max;
+        private final long acquisitions;
+        private final long timeouts;
+        private final long waitP50Nanos;
+        private final long waitP99Nanos;
+        private final long waitMaxNanos;
+
+        Snapshot(int active, int idle, int waiting, int max, long acquisitions, long timeouts,
+                 long waitP50Nanos, long waitP99Nanos, long waitMaxNanos) {
+            this.active = active;
+            this.idle = idle;
+            this.waiting = waiting;
+            this.max = max;
+            this.acquisitions = acquisitions;
+            this.timeouts = timeouts;
+            this.waitP50Nanos = waitP50Nanos;
+            this.waitP99Nanos = waitP99Nanos;
+            this.waitMaxNanos = waitMaxNanos;
+        }
+
+        public int getActive() {
+            return active;
+        }
+
+        public int getIdle() {
+            return idle;
+        }
+
+        public int getWaiting() {
+            return waiting;
+        }
+
+        public int getMax() {
+            return max;
+        }
+
+        public long getAcquisitions() {
+            return acquisitions;
+        }
+
+        public long getTimeouts() {
+            return timeouts;
+        }
+
+        public long getWaitP50() {
+            return TimeUnit.NANOSECONDS.toMicros(waitP50Nanos);
+        }
+
+        public long getWaitP99() {
+            return TimeUnit.NANOSECONDS.toMicros(waitP99Nanos);
+        }
+
+        public long getWaitMax() {
+            return TimeUnit.NANOSECONDS.toMicros(waitMaxNanos);
+        }
+    }
+}
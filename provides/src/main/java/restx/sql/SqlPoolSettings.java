@@ -0,0 +1,38 @@
+package restx.sql;
+
+import restx.config.Settings;
+import restx.config.SettingsKey;
+
+@Settings
+public interface SqlPoolSettings {
+
+    @SettingsKey(key = "restx.sql.url", defaultValue = "",
+            doc = "JDBC url of the database used by the pooled DataSource provided by SqlModule")
+    String url();
+
+    @SettingsKey(key = "restx.sql.user", defaultValue = "")
+    String user();
+
+    @SettingsKey(key = "restx.sql.password", defaultValue = "")
+    String password();
+
+    @SettingsKey(key = "restx.sql.pool.minSize", defaultValue = "2",
+            doc = "minimum number of idle connections kept in the pool")
+    int minSize();
+
+    @SettingsKey(key = "restx.sql.pool.maxSize", defaultValue = "10",
+            doc = "maximum number of connections, idle or in use")
+    int maxSize();
+
+    @SettingsKey(key = "restx.sql.pool.acquisitionTimeout", defaultValue = "30000",
+            doc = "maximum time in milliseconds to wait for a connection before failing")
+    long acquisitionTimeout();
+
+    @SettingsKey(key = "restx.sql.pool.maxLifetime", defaultValue = "1800000",
+            doc = "maximum lifetime in milliseconds of a connection, in use connections are retired once released")
+    long maxLifetime();
+
+    @SettingsKey(key = "restx.sql.pool.leakDetectionThreshold", defaultValue = "0",
+            doc = "time in milliseconds a connection can be out of the pool before a leak is logged, 0 to disable")
+    long leakDetectionThreshold();
+}
@@ -0,0 +1,30 @@
+package restx.sql;
+
+import org.skife.jdbi.v2.IDBI;
+
+/**
+ * A read replica of the primary database, provided as a component to have read only SQL component methods
+ * routed to it.
+ */
+public class SqlReplica {
+    private final String name;
+    private final IDBI dbi;
+
+    public SqlReplica(String name, IDBI dbi) {
+        this.name = name;
+        this.dbi = dbi;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public IDBI getDbi() {
+        return dbi;
+    }
+
+    @Override
+    public String toString() {
+        return "SqlReplica{name='" + name + "'}";
+    }
+}
@@ -0,0 +1,63 @@
+package restx.sql;
+
+import com.google.common.base.Optional;
+import org.skife.jdbi.v2.sqlobject.PublicOnDemandHandleDing;
+import restx.RestxContext;
+import restx.RestxFilter;
+import restx.RestxHandler;
+import restx.RestxHandlerMatch;
+import restx.RestxRequest;
+import restx.RestxRequestMatch;
+import restx.RestxResponse;
+import restx.StdRestxRequestMatch;
+import restx.factory.Component;
+
+import java.io.IOException;
+
+/**
+ * Opens a request scope on the SQL handle ding for each request.
+ *
+ * With {@code restx.sql.requestScopedHandle} set to {@code true}, all the SQL component calls of a request share
+ * one handle, opened by the first call and closed once the response is written, instead of opening a handle per call
+ * outside of transactions.
+ *
+ * With read replicas, the scope keeps the reads following a write on the primary, so a request reads its own writes.
+ *
+ * With {@code restx.sql.statements.requestDeadline} set, the statements of the request are tracked so they can be
+ * cancelled, see {@link SqlStatementGuard}.
+ */
+@Component(priority = -100)
+public class SqlRequestHandleFilter implements RestxFilter, RestxHandler {
+
+    private final PublicOnDemandHandleDing handleDing;
+    private final SqlStatementGuard statementGuard;
+    private final boolean shareHandle;
+
+    public SqlRequestHandleFilter(PublicOnDemandHandleDing handleDing, SqlStatementGuard statementGuard,
+                                  SqlRoutingSettings settings) {
+        this.handleDing = handleDing;
+        this.statementGuard = statementGuard;
+        this.shareHandle = settings.requestScopedHandle();
+    }
+
+    @Override
+    public Optional<RestxHandlerMatch> match(RestxRequest req) {
+        if (!shareHandle && !handleDing.hasReplicas() && !statementGuard.isTrackingRequests()) {
+            return Optional.absent();
+        }
+        return Optional.of(new RestxHandlerMatch(new StdRestxRequestMatch("*", req.getRestxPath()), this));
+    }
+
+    @Override
+    public void handle(RestxRequestMatch match, RestxRequest req, RestxResponse resp, RestxContext ctx)
+            throws IOException {
+        handleDing.beginRequestScope(shareHandle);
+        statementGuard.beginRequest();
+        try {
+            ctx.nextHandlerMatch().handle(req, resp, ctx);
+        } finally {
+            statementGuard.endRequest();
+            handleDing.endRequestScope();
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package restx.sql;
+
+import restx.config.Settings;
+import restx.config.SettingsKey;
+
+@Settings
+public interface SqlRoutingSettings {
+
+    @SettingsKey(key = "restx.sql.replicas.selection", defaultValue = "LEAST_OUTSTANDING",
+            doc = "how the replica running a read is chosen: LEAST_OUTSTANDING or ROUND_ROBIN")
+    String replicaSelection();
+
+    @SettingsKey(key = "restx.sql.requestScopedHandle", defaultValue = "false",
+            doc = "true to make all the SQL component calls of a request share one handle, opened by the first call"
+                    + " and closed once the response is written")
+    boolean requestScopedHandle();
+}
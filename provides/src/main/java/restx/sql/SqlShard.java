@@ -0,0 +1,31 @@
+package restx.sql;
+
+import org.skife.jdbi.v2.IDBI;
+
+/**
+ * A shard of the database, provided as a component to have the calls of sharded SQL components routed to it.
+ *
+ * Shards are numbered in the order of their names, which must not change once data has been written to them.
+ */
+public class SqlShard {
+    private final String name;
+    private final IDBI dbi;
+
+    public SqlShard(String name, IDBI dbi) {
+        this.name = name;
+        this.dbi = dbi;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public IDBI getDbi() {
+        return dbi;
+    }
+
+    @Override
+    public String toString() {
+        return "SqlShard{name='" + name + "'}";
+    }
+}
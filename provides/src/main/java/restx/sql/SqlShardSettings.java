@@ -0,0 +1,17 @@
+package restx.sql;
+
+import restx.config.Settings;
+import restx.config.SettingsKey;
+
+@Settings
+public interface SqlShardSettings {
+
+    @SettingsKey(key = "restx.sql.shards.strategy", defaultValue = "HASH",
+            doc = "how the shard of a shard key is chosen: HASH or RANGE")
+    String strategy();
+
+    @SettingsKey(key = "restx.sql.shards.ranges", defaultValue = "",
+            doc = "comma separated upper bounds (exclusive) of the keys of each shard but the last one, "
+                    + "for the RANGE strategy; numbers when they all are, strings otherwise")
+    String ranges();
+}
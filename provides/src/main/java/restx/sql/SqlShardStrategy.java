@@ -0,0 +1,17 @@
+package restx.sql;
+
+/**
+ * Chooses the shard of a {@link ShardKey} value.
+ *
+ * The one provided by SqlModule is configured by {@link SqlShardSettings}, an application can provide its own
+ * "SqlShardStrategy" component to replace it.
+ */
+public interface SqlShardStrategy {
+
+    /**
+     * @param key the value of the shard key argument, never null
+     * @param shards the number of shards
+     * @return the index of the shard of the key, between 0 and shards - 1
+     */
+    int shardOf(Object key, int shards);
+}
@@ -0,0 +1,191 @@
+package restx.sql;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded log of the slow SQL component method calls, with the SQL and the bound values of each.
+ *
+ * A call is logged when it lasts more than the threshold, 1000 milliseconds by default; only the last 100 ones are
+ * kept by default. Bound values are logged unless disabled, the ones of parameters annotated with {@link Redacted}
+ * never are. These are configured by the restx.sql.slowQueries.* settings, see {@link SqlMetricsSettings}.
+ *
+ * Queries and updates lasting more than the explain threshold, disabled by default, are explained in the
+ * background by a single thread, explanations are dropped while too many wait.
+ */
+public class SqlSlowQueries {
+
+    private static final Logger logger = LoggerFactory.getLogger(SqlSlowQueries.class);
+
+    private static final String REDACTED = "***";
+    private static final int MAX_VALUE_LENGTH = 200;
+
+    private static final SqlSlowQueries INSTANCE = new SqlSlowQueries(1000, 100, true, -1);
+
+    public static SqlSlowQueries getInstance() {
+        return INSTANCE;
+    }
+
+    private volatile int size;
+    private volatile boolean parameters;
+    private final Deque<LoaderOwned<SqlSlowQuery>> queries = new ArrayDeque<>();
+    private final ThreadPoolExecutor explainer;
+    private volatile long thresholdNanos;
+    private volatile long explainThresholdNanos;
+
+    SqlSlowQueries(long threshold, int size, boolean parameters, long explainThreshold) {
+        this.size = size;
+        this.parameters = parameters;
+        setThreshold(threshold);
+        setExplainThreshold(explainThreshold);
+        this.explainer = new ThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(16),
+                new ThreadFactoryBuilder().setNameFormat("restx-sql-explain-%d").setDaemon(true).build(),
+                new ThreadPoolExecutor.DiscardPolicy());
+        this.explainer.allowCoreThreadTimeOut(true);
+    }
+
+    public boolean isEnabled() {
+        return thresholdNanos >= 0;
+    }
+
+    public boolean isSlow(long nanos) {
+        long threshold = thresholdNanos;
+        return threshold >= 0 && nanos >= threshold;
+    }
+
+    /**
+     * @param threshold the minimum duration of a logged call in milliseconds, negative to disable the log
+     */
+    public void setThreshold(long threshold) {
+        this.thresholdNanos = threshold < 0 ? -1 : TimeUnit.MILLISECONDS.toNanos(threshold);
+    }
+
+    /**
+     * @param size the number of most recent calls kept, the oldest ones are dropped if there are more
+     */
+    public void setSize(int size) {
+        this.size = size;
+        synchronized (queries) {
+            while (queries.size() > size) {
+                queries.removeFirst();
+            }
+        }
+    }
+
+    /**
+     * @param parameters false to log no bound value
+     */
+    public void setParameters(boolean parameters) {
+        this.parameters = parameters;
+    }
+
+    /**
+     * Applies the restx.sql.slowQueries.* settings.
+     */
+    public void configure(SqlMetricsSettings settings) {
+        setThreshold(settings.slowQueryThreshold());
+        setSize(settings.slowQueries());
+        setParameters(settings.slowQueryParameters());
+        setExplainThreshold(settings.explainThreshold());
+    }
+
+    /**
+     * @param explainThreshold the minimum duration of an explained call in milliseconds, negative to disable
+     */
+    public void setExplainThreshold(long explainThreshold) {
+        this.explainThresholdNanos = explainThreshold < 0 ? -1 : TimeUnit.MILLISECONDS.toNanos(explainThreshold);
+    }
+
+    /**
+     * Logs a slow call.
+     *
+     * @param parameterNames the names of the method parameters
+     * @param redacted tells which parameters are annotated with {@link Redacted}
+     * @param rows the number of rows returned or updated, -1 if not known
+     */
+    public SqlSlowQuery record(Class<?> component, String method, String sql,
+                               String[] parameterNames, boolean[] redacted, Object[] args,
+                               long rows, long nanos, boolean error) {
+        Map<String, String> values = new LinkedHashMap<>();
+        for (int i = 0; i < parameterNames.length && args != null && i < args.length; i++) {
+            values.put(parameterNames[i], parameters && !redacted[i] ? toString(args[i]) : REDACTED);
+        }
+        SqlSlowQuery query = new SqlSlowQuery(System.currentTimeMillis(), component.getName(), method, sql,
+                Collections.unmodifiableMap(values), rows, nanos, error);
+        synchronized (queries) {
+            while (!queries.isEmpty() && queries.size() >= size) {
+                queries.removeFirst();
+            }
+            queries.addLast(new LoaderOwned<>(query, component.getClassLoader()));
+        }
+        return query;
+    }
+
+    /**
+     * Explains the given call in the background if it lasted more than the explain threshold.
+     *
+     * @param explanation returns the plan of the statement of the call
+     */
+    public void explain(final SqlSlowQuery query, final Callable<String> explanation) {
+        long threshold = explainThresholdNanos;
+        if (threshold < 0 || query.getNanos() < threshold) {
+            return;
+        }
+        explainer.execute(() -> {
+            try {
+                query.setPlan(explanation.call());
+            } catch (Exception e) {
+                logger.debug("unable to explain {}.{}", query.getComponent(), query.getMethod(), e);
+                query.setPlan("unable to explain: " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * @return the logged calls, the most recent first
+     */
+    public List<SqlSlowQuery> snapshot() {
+        List<SqlSlowQuery> snapshot = new ArrayList<>();
+        synchronized (queries) {
+            for (LoaderOwned<SqlSlowQuery> query : queries) {
+                snapshot.add(query.get());
+            }
+        }
+        Collections.reverse(snapshot);
+        return snapshot;
+    }
+
+    /**
+     * Drops the logged calls of the components of the given class loader and its descendants.
+     */
+    public void evict(ClassLoader classLoader) {
+        synchronized (queries) {
+            queries.removeIf(query -> query.isOwnedBy(classLoader));
+        }
+    }
+
+    public void clear() {
+        synchronized (queries) {
+            queries.clear();
+        }
+    }
+
+    private static String toString(Object value) {
+        String string = value instanceof Object[] ? Arrays.deepToString((Object[]) value) : String.valueOf(value);
+        return string.length() > MAX_VALUE_LENGTH ? string.substring(0, MAX_VALUE_LENGTH) + "..." : string;
+    }
+}
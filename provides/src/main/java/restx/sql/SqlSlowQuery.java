@@ -0,0 +1,91 @@
+package restx.sql;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A SQL component method call which lasted more than the slow query threshold, see {@link SqlSlowQueries}.
+ */
+public class SqlSlowQuery {
+
+    private final long timestamp;
+    private final String component;
+    private final String method;
+    private final String sql;
+    private final Map<String, String> parameters;
+    private final long rows;
+    private final long nanos;
+    private final boolean error;
+    private volatile String plan;
+
+    public SqlSlowQuery(long timestamp, String component, String method, String sql,
+                        Map<String, String> parameters, long rows, long nanos, boolean error) {
+        this.timestamp = timestamp;
+        this.component = component;
+        this.method = method;
+        this.sql = sql;
+        this.parameters = parameters;
+        this.rows = rows;
+        this.nanos = nanos;
+        this.error = error;
+    }
+
+    /**
+     * @return when the call ended, in milliseconds since the epoch
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public String getComponent() {
+        return component;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    /**
+     * @return the bound values by parameter name, redacted ones are replaced by {@code ***}
+     */
+    public Map<String, String> getParameters() {
+        return parameters;
+    }
+
+    /**
+     * @return the number of rows returned or updated, -1 if not known
+     */
+    public long getRows() {
+        return rows;
+    }
+
+    /**
+     * @return the duration of the call in microseconds
+     */
+    public long getDuration() {
+        return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+
+    long getNanos() {
+        return nanos;
+    }
+
+    public boolean isError() {
+        return error;
+    }
+
+    /**
+     * @return the plan of the statement, null until it is explained or if it is not
+     */
+    public String getPlan() {
+        return plan;
+    }
+
+    void setPlan(String plan) {
+        this.plan = plan;
+    }
+}
@@ -0,0 +1,95 @@
+package restx.sql;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Collectors;
+
+/**
+ * Time spent building each SQL component, by stage, to find the ones slowing the startup down.
+ *
+ * Stages are recorded as they happen: the handlers are resolved once per class, by the warmup or by the first
+ * instance, and each instance created by the factory machine of the component adds to its instantiation time.
+ */
+public class SqlStartupProfile {
+
+    private static final SqlStartupProfile INSTANCE = new SqlStartupProfile();
+
+    public static SqlStartupProfile getInstance() {
+        return INSTANCE;
+    }
+
+    private final ConcurrentMap<String, LoaderOwned<SqlComponentProfile>> components = new ConcurrentHashMap<>();
+
+    SqlStartupProfile() {
+    }
+
+    public SqlComponentProfile of(Class<?> component) {
+        return components.compute(component.getName(), (key, owned) -> owned == null
+                ? new LoaderOwned<>(new SqlComponentProfile(key), component.getClassLoader())
+                : owned.ownedBy(component.getClassLoader())).get();
+    }
+
+    /**
+     * Records the creation of an instance of a component by its factory machine.
+     */
+    public void instantiated(String machine, Class<?> component, long nanos) {
+        SqlComponentProfile profile = of(component);
+        profile.setMachine(machine);
+        profile.record(SqlComponentProfile.Stage.INSTANTIATE, nanos);
+    }
+
+    /**
+     * @return the profiles of the components, the slowest to build first
+     */
+    public List<SqlComponentProfile.Snapshot> snapshot() {
+        return components.values().stream()
+                .map(owned -> owned.get().snapshot())
+                .sorted(Comparator.comparingLong(SqlComponentProfile.Snapshot::getTotalTime).reversed())
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * @return a human readable report of the given number of slowest components
+     */
+    public String report(int limit) {
+        List<SqlComponentProfile.Snapshot> snapshots = snapshot();
+        long total = 0;
+        for (SqlComponentProfile.Snapshot snapshot : snapshots) {
+            total += snapshot.getTotalTime();
+        }
+        StringBuilder report = new StringBuilder(String.format("%d sql components built in %dms",
+                snapshots.size(), total / 1000));
+        for (SqlComponentProfile.Snapshot snapshot : snapshots.subList(0, Math.min(limit, snapshots.size()))) {
+            report.append(String.format("%n  %6dms %s", snapshot.getTotalTime() / 1000, snapshot.getComponent()));
+            if (snapshot.getMachine() != null) {
+                report.append(" (").append(snapshot.getMachine()).append(')');
+            }
+            for (Map.Entry<SqlComponentProfile.Stage, Long> stage : snapshot.getStages().entrySet()) {
+                report.append(String.format(" %s=%dms", stage.getKey().name().toLowerCase(Locale.ROOT), stage.getValue() / 1000));
+            }
+            if (!snapshot.getHandlers().isEmpty()) {
+                report.append(" handlers:");
+                for (SqlComponentProfile.HandlerTime handler : snapshot.getHandlers()) {
+                    report.append(String.format(" %s x%d=%dms", handler.getType(), handler.getCount(),
+                            handler.getTime() / 1000));
+                }
+            }
+        }
+        return report.toString();
+    }
+
+    /**
+     * Drops the profiles of the components of the given class loader and its descendants.
+     */
+    public void evict(ClassLoader classLoader) {
+        components.values().removeIf(owned -> owned.isOwnedBy(classLoader));
+    }
+
+    public void clear() {
+        components.clear();
+    }
+}
@@ -0,0 +1,347 @@
+package restx.sql;
+
+import com.google.common.base.Stopwatch;
+import org.skife.jdbi.v2.Binding;
+import org.skife.jdbi.v2.ClasspathStatementLocator;
+import org.skife.jdbi.v2.DBI;
+import org.skife.jdbi.v2.DefaultStatementBuilder;
+import org.skife.jdbi.v2.Handle;
+import org.skife.jdbi.v2.StatementContext;
+import org.skife.jdbi.v2.tweak.StatementBuilder;
+import org.skife.jdbi.v2.tweak.StatementBuilderFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Keeps the prepared statements of the SQL component methods for the lifetime of a handle, so the calls made with
+ * the same handle, e.g. in a transaction or a request sharing its handle, reuse them.
+ *
+ * Statements are prepared through the connection of the handle, i.e. the pool proxy, which tracks them and the
+ * transaction state; they are closed with the handle. Across handles, the server side statements are reused by
+ * the cache of the driver, e.g. the {@code preparedStatementCacheQueries} and {@code prepareThreshold} properties
+ * of the PostgreSQL driver, see {@link #driverProperties(String, int, int)}.
+ *
+ * Only the statements of registered methods are kept, see {@link SqlStatements}. Statements returning
+ * generated keys, concurrent updatable ones and calls are prepared and closed as usual.
+ */
+public class SqlStatementCache implements StatementBuilderFactory {
+
+    private static final Logger logger = LoggerFactory.getLogger(SqlStatementCache.class);
+
+    private static final String POSTGRESQL_URL = "jdbc:postgresql:";
+    private static final StatementBuilder DEFAULT_BUILDER = new DefaultStatementBuilder();
+
+    private final int size;
+    private final SqlStatements statements = SqlStatements.getInstance();
+
+    /**
+     * @param size the maximum number of statements kept per handle, 0 to disable the cache
+     */
+    public SqlStatementCache(int size) {
+        this.size = size;
+    }
+
+    public boolean isEnabled() {
+        return size > 0;
+    }
+
+    /**
+     * Makes the handles opened by the given DBI use this cache, unless it is disabled.
+     */
+    public void install(DBI dbi) {
+        if (isEnabled()) {
+            dbi.setStatementBuilderFactory(this);
+        }
+    }
+
+    /**
+     * @return the properties making the driver of the given JDBC URL keep the server side statements of each
+     * connection, empty if the driver is not known to have such a cache
+     */
+    public static Map<String, String> driverProperties(String url, int size, int prepareThreshold) {
+        Map<String, String> properties = new LinkedHashMap<>();
+        if (url != null && url.startsWith(POSTGRESQL_URL)) {
+            properties.put("preparedStatementCacheQueries", String.valueOf(size));
+            properties.put("prepareThreshold", String.valueOf(prepareThreshold));
+        }
+        return properties;
+    }
+
+    @Override
+    public StatementBuilder createStatementBuilder(Connection connection) {
+        return new CachingBuilder(new ConnectionStatements(connection, size));
+    }
+
+    /**
+     * Prepares every registered statement once, to check its syntax and warm the plans of the database up.
+     *
+     * The time taken by each statement and its failure, if any, are recorded in {@link SqlStatements}.
+     */
+    public void prepareAll(DBI dbi) {
+        Stopwatch stopwatch = Stopwatch.createStarted();
+        int prepared = 0;
+        int failed = 0;
+        Handle handle = dbi.open();
+        ConnectionStatements connectionStatements = new ConnectionStatements(handle.getConnection(), size);
+        try {
+            for (SqlStatementMetrics statement : statements.all()) {
+                String sql = statement.getSql();
+                if (sql == null || !ClasspathStatementLocator.looksLikeSql(sql)) {
+                    continue;
+                }
+                long start = System.nanoTime();
+                try {
+                    String rewritten = dbi.getStatementRewriter().rewrite(sql, new Binding(), null).getSql();
+                    prepare(connectionStatements, rewritten, statement.isCall());
+                    statement.prepared(System.nanoTime() - start, null);
+                    prepared++;
+                } catch (SQLException | RuntimeException e) {
+                    statement.prepared(System.nanoTime() - start, e.getMessage());
+                    failed++;
+                    logger.warn("unable to prepare {}.{}: {}", statement.getComponent(), statement.getMethod(),
+                            e.getMessage());
+                }
+            }
+        } finally {
+            connectionStatements.close();
+            handle.close();
+        }
+        logger.info("{} sql statements prepared in {}, {} failed", prepared, stopwatch.stop(), failed);
+    }
+
+    private void prepare(ConnectionStatements connectionStatements, String sql, boolean call) throws SQLException {
+        if (call || !isEnabled()) {
+            PreparedStatement statement = call
+                    ? connectionStatements.connection.prepareCall(sql)
+                    : connectionStatements.connection.prepareStatement(sql);
+            try {
+                // some drivers only send the statement to the database when it is described
+                statement.getParameterMetaData();
+            } finally {
+                statement.close();
+            }
+            return;
+        }
+        PreparedStatement statement = connectionStatements.checkout(sql);
+        if (statement == null) {
+            statement = connectionStatements.prepare(sql);
+        }
+        try {
+            statement.getParameterMetaData();
+        } finally {
+            if (!connectionStatements.checkin(statement)) {
+                statement.close();
+            }
+        }
+    }
+
+    private final class CachingBuilder implements StatementBuilder {
+        private final ConnectionStatements connectionStatements;
+
+        private CachingBuilder(ConnectionStatements connectionStatements) {
+            this.connectionStatements = connectionStatements;
+        }
+
+        @Override
+        public PreparedStatement create(Connection conn, String sql, StatementContext ctx) throws SQLException {
+            SqlStatementMetrics statement = statements.get(ctx.getSqlObjectMethod());
+            if (statement == null || ctx.isReturningGeneratedKeys() || ctx.isConcurrentUpdatable()) {
+                return DEFAULT_BUILDER.create(conn, sql, ctx);
+            }
+            PreparedStatement cached = connectionStatements.checkout(sql);
+            if (cached != null) {
+                statement.hit();
+                return cached;
+            }
+            long start = System.nanoTime();
+            PreparedStatement prepared = connectionStatements.prepare(sql);
+            statement.miss(System.nanoTime() - start);
+            return prepared;
+        }
+
+        @Override
+        public CallableStatement createCall(Connection conn, String sql, StatementContext ctx) throws SQLException {
+            return DEFAULT_BUILDER.createCall(conn, sql, ctx);
+        }
+
+        @Override
+        public void close(Connection conn, String sql, Statement stmt) throws SQLException {
+            if (!(stmt instanceof PreparedStatement) || !connectionStatements.checkin((PreparedStatement) stmt)) {
+                DEFAULT_BUILDER.close(conn, sql, stmt);
+            }
+        }
+
+        @Override
+        public void close(Connection conn) {
+            connectionStatements.close();
+        }
+    }
+
+    /**
+     * The statements of the connection of a handle, which is used by a single thread at a time.
+     */
+    private static final class ConnectionStatements {
+        private final Connection connection;
+        private final Map<String, CachedStatement> cache;
+        private final Map<PreparedStatement, CachedStatement> inUse = new IdentityHashMap<>();
+
+        private ConnectionStatements(Connection connection, final int size) {
+            this.connection = connection;
+            this.cache = new LinkedHashMap<String, CachedStatement>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, CachedStatement> eldest) {
+                    if (size() <= size) {
+                        return false;
+                    }
+                    CachedStatement evicted = eldest.getValue();
+                    if (!inUse.containsKey(evicted.statement)) {
+                        closeQuietly(evicted.statement);
+                    } else {
+                        // closed when checked in
+                        evicted.evicted = true;
+                    }
+                    return true;
+                }
+            };
+        }
+
+        /**
+         * @return the cached statement of the given SQL, null if there is none or if it is already in use
+         */
+        synchronized PreparedStatement checkout(String sql) throws SQLException {
+            CachedStatement cached = cache.get(sql);
+            if (cached == null || inUse.containsKey(cached.statement)) {
+                return null;
+            }
+            if (cached.statement.isClosed()) {
+                cache.remove(sql);
+                return null;
+            }
+            inUse.put(cached.statement, cached);
+            return cached.statement;
+        }
+
+        /**
+         * Prepares the given SQL, the statement is cached unless another statement is in use for it.
+         */
+        synchronized PreparedStatement prepare(String sql) throws SQLException {
+            PreparedStatement statement = connection.prepareStatement(sql);
+            CachedStatement current = cache.get(sql);
+            if (current != null && inUse.containsKey(current.statement)) {
+                return statement;
+            }
+            CachedStatement cached;
+            try {
+                cached = new CachedStatement(statement);
+            } catch (SQLException e) {
+                closeQuietly(statement);
+                throw e;
+            }
+            inUse.put(statement, cached);
+            cache.put(sql, cached);
+            if (current != null) {
+                closeQuietly(current.statement);
+            }
+            return statement;
+        }
+
+        /**
+         * Closes the cached statements, once the handle is closed.
+         */
+        synchronized void close() {
+            for (CachedStatement cached : cache.values()) {
+                closeQuietly(cached.statement);
+            }
+            cache.clear();
+            inUse.clear();
+        }
+
+        /**
+         * Resets a statement once used, so it is found by the next checkout.
+         *
+         * @return false if the statement is not cached and must be closed
+         */
+        synchronized boolean checkin(PreparedStatement statement) {
+            CachedStatement cached = inUse.remove(statement);
+            if (cached == null) {
+                return false;
+            }
+            if (cached.evicted) {
+                return false;
+            }
+            try {
+                cached.reset();
+                return true;
+            } catch (SQLException e) {
+                cache.values().remove(cached);
+                return false;
+            }
+        }
+    }
+
+    private static final class CachedStatement {
+        private final PreparedStatement statement;
+        private final int fetchSize;
+        private final int fetchDirection;
+        private final int maxRows;
+        private final int maxFieldSize;
+        private final int queryTimeout;
+        private final boolean poolable;
+        private boolean evicted;
+
+        private CachedStatement(PreparedStatement statement) throws SQLException {
+            this.statement = statement;
+            this.fetchSize = statement.getFetchSize();
+            this.fetchDirection = statement.getFetchDirection();
+            this.maxRows = statement.getMaxRows();
+            this.maxFieldSize = statement.getMaxFieldSize();
+            this.queryTimeout = statement.getQueryTimeout();
+            this.poolable = statement.isPoolable();
+        }
+
+        /**
+         * Restores what statement customizers and the previous call may have changed: bound parameters, pending
+         * batch, warnings and the settings of the statement.
+         */
+        private void reset() throws SQLException {
+            statement.clearParameters();
+            statement.clearBatch();
+            statement.clearWarnings();
+            if (statement.getFetchSize() != fetchSize) {
+                statement.setFetchSize(fetchSize);
+            }
+            if (statement.getFetchDirection() != fetchDirection) {
+                statement.setFetchDirection(fetchDirection);
+            }
+            if (statement.getMaxRows() != maxRows) {
+                statement.setMaxRows(maxRows);
+            }
+            if (statement.getMaxFieldSize() != maxFieldSize) {
+                statement.setMaxFieldSize(maxFieldSize);
+            }
+            if (statement.getQueryTimeout() != queryTimeout) {
+                statement.setQueryTimeout(queryTimeout);
+            }
+            if (statement.isPoolable() != poolable) {
+                statement.setPoolable(poolable);
+            }
+        }
+    }
+
+    private static void closeQuietly(Statement statement) {
+        try {
+            statement.close();
+        } catch (SQLException e) {
+            logger.debug("unable to close cached statement", e);
+        }
+    }
+}
@@ -0,0 +1,274 @@
+package restx.sql;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.skife.jdbi.v2.DBI;
+import org.skife.jdbi.v2.DefaultStatementBuilder;
+import org.skife.jdbi.v2.StatementContext;
+import org.skife.jdbi.v2.tweak.StatementBuilder;
+import org.skife.jdbi.v2.tweak.StatementBuilderFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounds the time SQL component statements hold their connection.
+ *
+ * Statements of SQL component methods get a default JDBC query timeout of {@code queryTimeout} seconds, which
+ * {@code @QueryTimeOut} on the method or the component overrides.
+ *
+ * The statements running for an HTTP request are tracked between {@link #beginRequest()} and {@link #endRequest()},
+ * called by {@link SqlRequestHandleFilter}. They are cancelled once the request has run for {@code requestDeadline}
+ * seconds, or once its thread is interrupted. The deadline is fixed: the server doesn't tell blocked handlers that
+ * their client disconnected, so the statements of a request whose client is gone still run until it.
+ * Later statements of a cancelled request fail without being run.
+ *
+ * Statements run for the request by other threads are tracked with it when their task is wrapped by
+ * {@link #inCurrentRequest(Runnable)}, as the {@link SqlAsyncExecutor} does: those of asynchronous calls, of calls
+ * made on all the shards and of {@link SqlFanOut} calls.
+ * Request tracking stops when the guard is closed with its factory.
+ */
+public class SqlStatementGuard implements StatementBuilderFactory, AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(SqlStatementGuard.class);
+
+    // SQL state of a statement cancelled on user request
+    private static final String QUERY_CANCELED = "57014";
+    private static final StatementBuilder DEFAULT_BUILDER = new DefaultStatementBuilder();
+    private static final ScheduledExecutorService watchdog = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder().setNameFormat("restx-sql-watchdog-%d").setDaemon(true).build());
+
+    private final SqlStatementCache statementCache;
+    private final int queryTimeout;
+    private final long requestDeadlineNanos;
+    private final ThreadLocal<RequestStatements> current = new ThreadLocal<>();
+    private final ConcurrentMap<Thread, RequestStatements> requests = new ConcurrentHashMap<>();
+    private final LongAdder cancellations = new LongAdder();
+    private final ScheduledFuture<?> watch;
+
+    /**
+     * @param queryTimeout the default query timeout of SQL component statements in seconds, 0 for none
+     * @param requestDeadline the time from the start of a request after which its statements are cancelled in
+     *                        seconds, 0 to not track requests
+     */
+    public SqlStatementGuard(SqlStatementCache statementCache, int queryTimeout, int requestDeadline) {
+        this.statementCache = statementCache;
+        this.queryTimeout = queryTimeout;
+        this.requestDeadlineNanos = TimeUnit.SECONDS.toNanos(requestDeadline);
+        if (requestDeadline > 0) {
+            long period = Math.min(1000, TimeUnit.SECONDS.toMillis(requestDeadline) / 4);
+            this.watch = watchdog.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    cancelAbortedRequests();
+                }
+            }, period, period, TimeUnit.MILLISECONDS);
+        } else {
+            this.watch = null;
+        }
+    }
+
+    /**
+     * Stops watching the requests, so the guard is not kept alive by the watchdog once its factory is closed.
+     */
+    @Override
+    public void close() {
+        if (watch != null) {
+            watch.cancel(false);
+        }
+        requests.clear();
+    }
+
+    public boolean isEnabled() {
+        return queryTimeout > 0 || isTrackingRequests();
+    }
+
+    public boolean isTrackingRequests() {
+        return requestDeadlineNanos > 0;
+    }
+
+    /**
+     * Makes the handles opened by the given DBI use this guard, on top of the statement cache.
+     */
+    public void install(DBI dbi) {
+        if (isEnabled()) {
+            dbi.setStatementBuilderFactory(this);
+        } else {
+            statementCache.install(dbi);
+        }
+    }
+
+    @Override
+    public StatementBuilder createStatementBuilder(Connection connection) {
+        return new GuardingBuilder(statementCache.isEnabled()
+                ? statementCache.createStatementBuilder(connection) : DEFAULT_BUILDER);
+    }
+
+    /**
+     * Tracks the statements created by the current thread, until {@link #endRequest()}.
+     */
+    public void beginRequest() {
+        if (isTrackingRequests()) {
+            RequestStatements request = new RequestStatements(Thread.currentThread());
+            current.set(request);
+            requests.put(request.thread, request);
+        }
+    }
+
+    public void endRequest() {
+        if (isTrackingRequests()) {
+            current.remove();
+            requests.remove(Thread.currentThread());
+        }
+    }
+
+    /**
+     * @return a task running the given one with its statements tracked as part of the request of the current
+     * thread, if any, so that they are cancelled with it
+     */
+    public Runnable inCurrentRequest(final Runnable task) {
+        final RequestStatements request = current.get();
+        if (request == null) {
+            return task;
+        }
+        return new Runnable() {
+            @Override
+            public void run() {
+                RequestStatements previous = current.get();
+                current.set(request);
+                try {
+                    task.run();
+                } finally {
+                    if (previous == null) {
+                        current.remove();
+                    } else {
+                        current.set(previous);
+                    }
+                }
+            }
+        };
+    }
+
+    /**
+     * @return the number of statements cancelled since startup
+     */
+    public long getCancelled() {
+        return cancellations.sum();
+    }
+
+    private void cancelAbortedRequests() {
+        long now = System.nanoTime();
+        for (RequestStatements request : requests.values()) {
+            if (!request.cancelled && (now - request.start > requestDeadlineNanos || request.thread.isInterrupted())) {
+                request.cancel();
+            }
+        }
+    }
+
+    private final class GuardingBuilder implements StatementBuilder {
+        private final StatementBuilder delegate;
+
+        private GuardingBuilder(StatementBuilder delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public PreparedStatement create(Connection conn, String sql, StatementContext ctx) throws SQLException {
+            return guard(conn, delegate.create(conn, sql, ctx), sql, ctx);
+        }
+
+        @Override
+        public CallableStatement createCall(Connection conn, String sql, StatementContext ctx) throws SQLException {
+            return guard(conn, delegate.createCall(conn, sql, ctx), sql, ctx);
+        }
+
+        private <S extends PreparedStatement> S guard(Connection conn, S statement, String sql, StatementContext ctx)
+                throws SQLException {
+            if (queryTimeout > 0 && ctx.getSqlObjectMethod() != null && statement.getQueryTimeout() == 0) {
+                statement.setQueryTimeout(queryTimeout);
+            }
+            RequestStatements request = current.get();
+            if (request != null && !request.add(statement)) {
+                delegate.close(conn, sql, statement);
+                throw new SQLException("statement of a cancelled request not run: " + sql, QUERY_CANCELED);
+            }
+            return statement;
+        }
+
+        @Override
+        public void close(Connection conn, String sql, Statement stmt) throws SQLException {
+            RequestStatements request = current.get();
+            if (request != null) {
+                request.remove(stmt);
+            }
+            delegate.close(conn, sql, stmt);
+        }
+
+        @Override
+        public void close(Connection conn) {
+            delegate.close(conn);
+        }
+    }
+
+    /**
+     * The statements created for a request, by its thread or by tasks run for it, and not closed yet.
+     */
+    private final class RequestStatements {
+        private final Thread thread;
+        private final long start = System.nanoTime();
+        private final Set<Statement> statements =
+                Collections.newSetFromMap(new IdentityHashMap<Statement, Boolean>());
+        private volatile boolean cancelled;
+
+        private RequestStatements(Thread thread) {
+            this.thread = thread;
+        }
+
+        /**
+         * @return false if the request is cancelled
+         */
+        synchronized boolean add(Statement statement) {
+            if (cancelled) {
+                return false;
+            }
+            statements.add(statement);
+            return true;
+        }
+
+        synchronized void remove(Statement statement) {
+            statements.remove(statement);
+        }
+
+        /**
+         * Cancels the statements while holding the lock of {@link #remove(Statement)}, so a statement closed by
+         * the request, which may be cached and run by another request on the same connection, is never cancelled.
+         */
+        synchronized void cancel() {
+            cancelled = true;
+            for (Statement statement : statements) {
+                try {
+                    statement.cancel();
+                    cancellations.increment();
+                    logger.warn("cancelled statement of aborted request on {} after {}ms", thread.getName(),
+                            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                } catch (SQLException e) {
+                    logger.debug("unable to cancel statement", e);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package restx.sql;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Prepared statement cache usage of a single SQL component method.
+ *
+ * A hit is a statement taken from the cache of the connection, a miss a statement prepared on the connection.
+ */
+public class SqlStatementMetrics {
+
+    private final String component;
+    private final String method;
+    private final String sql;
+    private final boolean call;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder prepareNanos = new LongAdder();
+    private volatile long startupPrepareNanos = -1;
+    private volatile String startupError;
+
+    /**
+     * @param sql the SQL of the method, null if it is located at runtime and so can't be prepared ahead
+     * @param call true for a stored procedure call
+     */
+    public SqlStatementMetrics(String component, String method, String sql, boolean call) {
+        this.component = component;
+        this.method = method;
+        this.sql = sql;
+        this.call = call;
+    }
+
+    public String getComponent() {
+        return component;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    public boolean isCall() {
+        return call;
+    }
+
+    public void hit() {
+        hits.increment();
+    }
+
+    public void miss(long prepareNanos) {
+        misses.increment();
+        this.prepareNanos.add(prepareNanos);
+    }
+
+    /**
+     * Records the preparation of the statement when the factory started.
+     *
+     * @param error the message of the failure, null if the statement was prepared
+     */
+    public void prepared(long nanos, String error) {
+        startupPrepareNanos = nanos;
+        startupError = error;
+    }
+
+    public void reset() {
+        hits.reset();
+        misses.reset();
+        prepareNanos.reset();
+    }
+
+    public Snapshot snapshot() {
+        return new Snapshot(component, method, sql, hits.sum(), misses.sum(), prepareNanos.sum(),
+                startupPrepareNanos, startupError);
+    }
+
+    /**
+     * Immutable view of the cache usage of a method, durations are in microseconds.
+     */
+    public static class Snapshot {
+        private final String component;
+        private final String method;
+        private final String sql;
+        private final long hits;
+        private final long misses;
+        private final long prepareNanos;
+        private final long startupPrepareNanos;
+        private final String startupError;
+
+        Snapshot(String component, String method, String sql, long hits, long misses, long prepareNanos,
+                 long startupPrepareNanos, String startupError) {
+            this.component = component;
+            this.method = method;
+            this.sql = sql;
+            this.hits = hits;
+            this.misses = misses;
+            this.prepareNanos = prepareNanos;
+            this.startupPrepareNanos = startupPrepareNanos;
+            this.startupError = startupError;
+        }
+
+        public String getComponent() {
+            return component;
+        }
+
+        public String getMethod() {
+            return method;
+        }
+
+        public String getSql() {
+            return sql;
+        }
+
+        public long getHits() {
+            return hits;
+        }
+
+        public long getMisses() {
+            return misses;
+        }
+
+        public double getHitRatio() {
+            return hits + misses == 0 ? 0 : (double) hits / (hits + misses);
+        }
+
+        public long getMeanPrepareTime() {
+            return misses == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(prepareNanos / misses);
+        }
+
+        /**
+         * @return the time taken to prepare the statement when the factory started, -1 if it was not
+         */
+        public long getStartupPrepareTime() {
+            return startupPrepareNanos < 0 ? -1 : TimeUnit.NANOSECONDS.toMicros(startupPrepareNanos);
+        }
+
+        public String getStartupError() {
+            return startupError;
+        }
+    }
+}
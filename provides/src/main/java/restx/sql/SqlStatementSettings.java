@@ -0,0 +1,42 @@
+package restx.sql;
+
+import restx.config.Settings;
+import restx.config.SettingsKey;
+
+@Settings
+public interface SqlStatementSettings {
+
+    /**
+     * Name of the statement attribute defined on the DBIs of SqlModule with {@link #streamFetchSize()}.
+     */
+    String STREAM_FETCH_SIZE = "restx.sql.stream.fetchSize";
+
+    @SettingsKey(key = "restx.sql.statements.cacheSize", defaultValue = "256",
+            doc = "maximum number of prepared statements kept per handle, and of server side statements kept by"
+                    + " the driver per connection, 0 to disable the caches")
+    int cacheSize();
+
+    @SettingsKey(key = "restx.sql.statements.prepareThreshold", defaultValue = "5",
+            doc = "number of executions of a statement after which the driver prepares it on the server side and"
+                    + " keeps it for the connection, used with the PostgreSQL driver only")
+    int prepareThreshold();
+
+    @SettingsKey(key = "restx.sql.statements.prepareAtStartup", defaultValue = "false",
+            doc = "prepare the statement of every SQL component method when the factory starts, to check them early")
+    boolean prepareAtStartup();
+
+    @SettingsKey(key = "restx.sql.statements.queryTimeout", defaultValue = "0",
+            doc = "default query timeout of the SQL component statements in seconds, overridden by @QueryTimeOut,"
+                    + " 0 for none")
+    int queryTimeout();
+
+    @SettingsKey(key = "restx.sql.statements.requestDeadline", defaultValue = "0",
+            doc = "time in seconds from the start of an HTTP request after which its statements still running are"
+                    + " cancelled, as are those of interrupted request threads, 0 to never cancel them; it is a fixed"
+                    + " deadline, which doesn't detect clients disconnecting before it")
+    int requestDeadline();
+
+    @SettingsKey(key = STREAM_FETCH_SIZE, defaultValue = "1000",
+            doc = "fetch size of the queries returning an Iterator or a Stream, overridden by @FetchSize")
+    int streamFetchSize();
+}
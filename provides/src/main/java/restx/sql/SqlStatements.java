@@ -0,0 +1,105 @@
+package restx.sql;
+
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Collectors;
+
+/**
+ * Registry of the SQL statements of every SQL component method.
+ *
+ * Statements are registered once, when the handlers of their component are resolved: they are the ones kept by
+ * the {@link SqlStatementCache} and prepared when the factory starts.
+ */
+public class SqlStatements {
+
+    private static final SqlStatements INSTANCE = new SqlStatements();
+
+    public static SqlStatements getInstance() {
+        return INSTANCE;
+    }
+
+    private final ConcurrentMap<Method, SqlStatementMetrics> statements = new ConcurrentHashMap<>();
+
+    SqlStatements() {
+    }
+
+    /**
+     * @param sql the SQL of the method, null if it is located at runtime
+     */
+    public SqlStatementMetrics register(Method method, String component, String name, String sql, boolean call) {
+        return statements.computeIfAbsent(method, key -> new SqlStatementMetrics(component, name, sql, call));
+    }
+
+    /**
+     * @return the statement of the given method, null if it is not a registered SQL component method
+     */
+    public SqlStatementMetrics get(Method method) {
+        return method == null ? null : statements.get(method);
+    }
+
+    public Collection<SqlStatementMetrics> all() {
+        return statements.values();
+    }
+
+    public Snapshot snapshot() {
+        List<SqlStatementMetrics.Snapshot> snapshots = statements.values().stream()
+                .map(SqlStatementMetrics::snapshot)
+                .sorted(Comparator.comparing(SqlStatementMetrics.Snapshot::getComponent)
+                        .thenComparing(SqlStatementMetrics.Snapshot::getMethod))
+                .collect(Collectors.toList());
+        long hits = 0;
+        long misses = 0;
+        for (SqlStatementMetrics.Snapshot snapshot : snapshots) {
+            hits += snapshot.getHits();
+            misses += snapshot.getMisses();
+        }
+        return new Snapshot(hits, misses, snapshots);
+    }
+
+    /**
+     * Drops the statements of the classes of the given class loader and its descendants.
+     */
+    public void evict(ClassLoader classLoader) {
+        statements.keySet().removeIf(method ->
+                SqlObjectCaches.isDescendant(method.getDeclaringClass().getClassLoader(), classLoader));
+    }
+
+    public void reset() {
+        statements.values().forEach(SqlStatementMetrics::reset);
+    }
+
+    /**
+     * Immutable view of the prepared statement cache usage.
+     */
+    public static class Snapshot {
+        private final long hits;
+        private final long misses;
+        private final List<SqlStatementMetrics.Snapshot> statements;
+
+        Snapshot(long hits, long misses, List<SqlStatementMetrics.Snapshot> statements) {
+            this.hits = hits;
+            this.misses = misses;
+            this.statements = statements;
+        }
+
+        public long getHits() {
+            return hits;
+        }
+
+        public long getMisses() {
+            return misses;
+        }
+
+        public double getHitRatio() {
+            return hits + misses == 0 ? 0 : (double) hits / (hits + misses);
+        }
+
+        public List<SqlStatementMetrics.Snapshot> getStatements() {
+            return statements;
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package restx.sql;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Declares the tables modified by a {@code @SqlUpdate}, {@code @SqlBatch} or {@code @SqlCall} method,
+ * to invalidate the {@link CachedQuery} results reading them.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface WritesTables {
+    String[] value();
+}
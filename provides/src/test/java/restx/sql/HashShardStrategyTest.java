@@ -0,0 +1,44 @@
+package restx.sql;
+
+import org.junit.Test;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class HashShardStrategyTest {
+
+    private final HashShardStrategy strategy = new HashShardStrategy();
+
+    @Test
+    public void should_hash_integral_keys_by_value_and_enums_by_name() {
+        for (int key = 0; key < 100; key++) {
+            int shard = strategy.shardOf((long) key, 7);
+            assertEquals(shard, strategy.shardOf(key, 7));
+            assertEquals(shard, strategy.shardOf((short) key, 7));
+        }
+        assertEquals(strategy.shardOf("SECONDS", 7), strategy.shardOf(TimeUnit.SECONDS, 7));
+    }
+
+    @Test
+    public void should_spread_sequential_keys_over_all_the_shards() {
+        int[] counts = new int[4];
+        for (long key = 0; key < 4000; key++) {
+            counts[strategy.shardOf(key, counts.length)]++;
+        }
+        for (int count : counts) {
+            assertTrue(count + " keys on a shard", count > 800 && count < 1200);
+        }
+    }
+
+    @Test
+    public void should_choose_shards_in_range_for_any_key() {
+        Object[] keys = {Long.MIN_VALUE, -1, Long.MAX_VALUE, "", "key", UUID.randomUUID()};
+        for (Object key : keys) {
+            int shard = strategy.shardOf(key, 3);
+            assertTrue(key + " on shard " + shard, shard >= 0 && shard < 3);
+        }
+    }
+}
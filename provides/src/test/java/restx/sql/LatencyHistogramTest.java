@@ -0,0 +1,54 @@
+package restx.sql;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void should_put_durations_in_buckets_a_quarter_of_their_power_of_two_wide() {
+        for (long nanos : new long[]{0, 1, 3, 4, 5, 7, 8, 100, 1023, 1024, 123456789L, Long.MAX_VALUE}) {
+            int bucket = LatencyHistogram.bucketOf(nanos);
+            long lower = LatencyHistogram.lowerBoundOf(bucket);
+            assertTrue(nanos + " below the bucket starting at " + lower, lower <= nanos);
+            if (nanos < Long.MAX_VALUE / 2) {
+                long upper = LatencyHistogram.lowerBoundOf(bucket + 1);
+                assertTrue(nanos + " above the bucket ending at " + upper, nanos < upper);
+                assertTrue(nanos + " in a bucket too wide", upper - lower <= Math.max(1, lower / 4));
+            }
+        }
+        assertEquals(0, LatencyHistogram.bucketOf(-5));
+    }
+
+    @Test
+    public void should_give_percentiles_within_a_quarter_capped_to_the_max() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000);
+        }
+
+        long[] percentiles = histogram.percentiles(0.5, 0.99, 1);
+
+        assertWithinAQuarter(500000, percentiles[0]);
+        assertWithinAQuarter(990000, percentiles[1]);
+        assertEquals(1000000, percentiles[2]);
+        assertEquals(1000000, histogram.getMax());
+    }
+
+    @Test
+    public void should_be_empty_once_reset() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(1000);
+        histogram.reset();
+
+        assertArrayEquals(new long[]{0, 0}, histogram.percentiles(0.5, 1));
+        assertEquals(0, histogram.getMax());
+    }
+
+    private static void assertWithinAQuarter(long expected, long actual) {
+        assertTrue(actual + " instead of " + expected, actual >= expected && actual <= expected * 5 / 4);
+    }
+}
@@ -0,0 +1,45 @@
+package restx.sql;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class RangeShardStrategyTest {
+
+    @Test
+    public void should_assign_each_shard_the_keys_below_its_upper_bound() {
+        RangeShardStrategy strategy = RangeShardStrategy.parse("10, 20");
+
+        assertEquals(0, strategy.shardOf(Long.MIN_VALUE, 3));
+        assertEquals(0, strategy.shardOf(9, 3));
+        assertEquals(1, strategy.shardOf(10L, 3));
+        assertEquals(1, strategy.shardOf((short) 19, 3));
+        assertEquals(2, strategy.shardOf(20, 3));
+        assertEquals(2, strategy.shardOf(Long.MAX_VALUE, 3));
+    }
+
+    @Test
+    public void should_compare_other_keys_with_their_bounds() {
+        RangeShardStrategy strategy = RangeShardStrategy.parse("g,p");
+
+        assertEquals(0, strategy.shardOf("alice", 3));
+        assertEquals(1, strategy.shardOf("g", 3));
+        assertEquals(2, strategy.shardOf("zoe", 3));
+        assertEquals("RangeShardStrategy[g, p]", strategy.toString());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void should_reject_bounds_not_increasing() {
+        RangeShardStrategy.parse("20,10");
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void should_reject_a_number_of_shards_not_matching_the_bounds() {
+        RangeShardStrategy.parse("10,20").shardOf(5, 2);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void should_reject_keys_not_comparable_with_the_bounds() {
+        new RangeShardStrategy(10L).shardOf(new Object(), 2);
+    }
+}
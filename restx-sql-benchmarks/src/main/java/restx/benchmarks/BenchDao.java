@@ -0,0 +1,19 @@
+package restx.benchmarks;
+
+import org.skife.jdbi.v2.sqlobject.Bind;
+import org.skife.jdbi.v2.sqlobject.SqlQuery;
+import org.skife.jdbi.v2.sqlobject.SqlUpdate;
+import restx.factory.SqlComponent;
+
+@SqlComponent
+public abstract class BenchDao {
+
+    @SqlQuery("SELECT 1")
+    public abstract int one();
+
+    @SqlQuery("SELECT label FROM bench_obj WHERE id = :id")
+    public abstract String findLabel(@Bind("id") int id);
+
+    @SqlUpdate("UPDATE bench_obj SET label = :label WHERE id = :id")
+    public abstract int updateLabel(@Bind("id") int id, @Bind("label") String label);
+}
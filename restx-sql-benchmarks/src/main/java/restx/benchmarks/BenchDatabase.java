@@ -0,0 +1,51 @@
+package restx.benchmarks;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.skife.jdbi.v2.DBI;
+import org.skife.jdbi.v2.Handle;
+import org.skife.jdbi.v2.sqlobject.PublicOnDemandHandleDing;
+
+import javax.sql.DataSource;
+
+/**
+ * In-memory H2 database standing in for the real one, so only the restx-sql and jdbi layers are compared.
+ */
+public class BenchDatabase {
+
+    public static final int ROWS = 1000;
+
+    private final JdbcDataSource dataSource;
+    private final DBI dbi;
+    private final Handle keepAlive;
+
+    public BenchDatabase(String name) {
+        dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1");
+        dbi = new DBI(dataSource);
+
+        // an in-memory H2 database is dropped when its last connection is closed
+        keepAlive = dbi.open();
+        keepAlive.execute("DROP TABLE IF EXISTS bench_obj");
+        keepAlive.execute("CREATE TABLE bench_obj (id INT PRIMARY KEY, label VARCHAR(255))");
+        for (int i = 0; i < ROWS; i++) {
+            keepAlive.execute("INSERT INTO bench_obj VALUES (?, ?)", i, "label" + i);
+        }
+    }
+
+    public DataSource getDataSource() {
+        return dataSource;
+    }
+
+    public DBI getDbi() {
+        return dbi;
+    }
+
+    public PublicOnDemandHandleDing newHandleDing() {
+        return new PublicOnDemandHandleDing(dbi);
+    }
+
+    public void close() {
+        keepAlive.execute("DROP TABLE bench_obj");
+        keepAlive.close();
+    }
+}
@@ -0,0 +1,23 @@
+package restx.benchmarks;
+
+import org.skife.jdbi.v2.sqlobject.Transaction;
+import restx.factory.SqlComponent;
+
+@SqlComponent
+public class BenchService {
+
+    private final BenchDao benchDao;
+
+    public BenchService(BenchDao benchDao) {
+        this.benchDao = benchDao;
+    }
+
+    @Transaction
+    public int updateTwoLabels(int id) {
+        return benchDao.updateLabel(id, "first") + benchDao.updateLabel(id + 1, "second");
+    }
+
+    public int updateTwoLabelsWithoutTransaction(int id) {
+        return benchDao.updateLabel(id, "first") + benchDao.updateLabel(id + 1, "second");
+    }
+}
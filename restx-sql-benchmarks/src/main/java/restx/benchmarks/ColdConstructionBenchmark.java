@@ -0,0 +1,59 @@
+package restx.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.skife.jdbi.v2.sqlobject.PublicOnDemandHandleDing;
+import org.skife.jdbi.v2.sqlobject.SqlObjectUtils;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the first creation of a SQL component in a fresh JVM: proxy class generation or generated class
+ * initialization, and handlers resolution.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(20)
+public class ColdConstructionBenchmark {
+
+    private BenchDatabase database;
+    private PublicOnDemandHandleDing handleDing;
+
+    @Setup
+    public void setUp() {
+        database = new BenchDatabase("cold");
+        handleDing = database.newHandleDing();
+    }
+
+    @TearDown
+    public void tearDown() {
+        database.close();
+    }
+
+    @Benchmark
+    public BenchDao generatedDao() {
+        return new BenchDaoSqlObject(handleDing);
+    }
+
+    @Benchmark
+    public BenchDao proxyDao() {
+        return SqlObjectUtils.buildSqlObject(BenchDao.class, handleDing, new Class[0], new Object[0]);
+    }
+
+    @Benchmark
+    public BenchDao onDemandDao() {
+        return database.getDbi().onDemand(BenchDao.class);
+    }
+}
@@ -0,0 +1,71 @@
+package restx.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.skife.jdbi.v2.sqlobject.PublicOnDemandHandleDing;
+import org.skife.jdbi.v2.sqlobject.SqlObjectUtils;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of creating a SQL component once its class is ready, as done for each injection by the factory machines.
+ *
+ * See {@link ColdConstructionBenchmark} for the first creation, including class generation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConstructionBenchmark {
+
+    private BenchDatabase database;
+    private PublicOnDemandHandleDing handleDing;
+    private BenchDao dao;
+
+    @Setup
+    public void setUp() {
+        database = new BenchDatabase("construction" + Thread.currentThread().getId());
+        handleDing = database.newHandleDing();
+        dao = new BenchDaoSqlObject(handleDing);
+        // the first proxies build the proxy classes
+        proxyDao();
+        proxyService();
+    }
+
+    @TearDown
+    public void tearDown() {
+        database.close();
+    }
+
+    @Benchmark
+    public BenchDao generatedDao() {
+        return new BenchDaoSqlObject(handleDing);
+    }
+
+    @Benchmark
+    public BenchDao proxyDao() {
+        return SqlObjectUtils.buildSqlObject(BenchDao.class, handleDing, new Class[0], new Object[0]);
+    }
+
+    @Benchmark
+    public BenchService generatedService() {
+        return new BenchServiceSqlObject(handleDing, dao);
+    }
+
+    @Benchmark
+    public BenchService proxyService() {
+        return SqlObjectUtils.buildSqlObject(BenchService.class, handleDing,
+                new Class[]{BenchDao.class}, new Object[]{dao});
+    }
+}
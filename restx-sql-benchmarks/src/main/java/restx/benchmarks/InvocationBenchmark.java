@@ -0,0 +1,137 @@
+package restx.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.skife.jdbi.v2.sqlobject.PublicOnDemandHandleDing;
+import org.skife.jdbi.v2.sqlobject.SqlObjectUtils;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-call cost of a DAO method: the generated sql object, the cglib proxy built by
+ * {@link SqlObjectUtils#buildSqlObject}, plain jdbi {@code onDemand} and raw JDBC.
+ *
+ * Each call opens and closes its handle, as outside of a transaction.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InvocationBenchmark {
+
+    private BenchDatabase database;
+    private BenchDao generated;
+    private BenchDao proxy;
+    private BenchDao onDemand;
+    private int id;
+
+    @Setup
+    public void setUp() {
+        database = new BenchDatabase("invocation" + Thread.currentThread().getId());
+        PublicOnDemandHandleDing handleDing = database.newHandleDing();
+        generated = new BenchDaoSqlObject(handleDing);
+        proxy = SqlObjectUtils.buildSqlObject(BenchDao.class, handleDing, new Class[0], new Object[0]);
+        onDemand = database.getDbi().onDemand(BenchDao.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        database.close();
+    }
+
+    private int nextId() {
+        id = (id + 1) % BenchDatabase.ROWS;
+        return id;
+    }
+
+    @Benchmark
+    public int generatedTrivialQuery() {
+        return generated.one();
+    }
+
+    @Benchmark
+    public int proxyTrivialQuery() {
+        return proxy.one();
+    }
+
+    @Benchmark
+    public int onDemandTrivialQuery() {
+        return onDemand.one();
+    }
+
+    @Benchmark
+    public int rawJdbcTrivialQuery() throws SQLException {
+        try (Connection connection = database.getDataSource().getConnection();
+             PreparedStatement statement = connection.prepareStatement("SELECT 1");
+             ResultSet resultSet = statement.executeQuery()) {
+            resultSet.next();
+            return resultSet.getInt(1);
+        }
+    }
+
+    @Benchmark
+    public String generatedQuery() {
+        return generated.findLabel(nextId());
+    }
+
+    @Benchmark
+    public String proxyQuery() {
+        return proxy.findLabel(nextId());
+    }
+
+    @Benchmark
+    public String onDemandQuery() {
+        return onDemand.findLabel(nextId());
+    }
+
+    @Benchmark
+    public String rawJdbcQuery() throws SQLException {
+        try (Connection connection = database.getDataSource().getConnection();
+             PreparedStatement statement = connection.prepareStatement("SELECT label FROM bench_obj WHERE id = ?")) {
+            statement.setInt(1, nextId());
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() ? resultSet.getString(1) : null;
+            }
+        }
+    }
+
+    @Benchmark
+    public int generatedUpdate() {
+        return generated.updateLabel(nextId(), "updated");
+    }
+
+    @Benchmark
+    public int proxyUpdate() {
+        return proxy.updateLabel(nextId(), "updated");
+    }
+
+    @Benchmark
+    public int onDemandUpdate() {
+        return onDemand.updateLabel(nextId(), "updated");
+    }
+
+    @Benchmark
+    public int rawJdbcUpdate() throws SQLException {
+        try (Connection connection = database.getDataSource().getConnection();
+             PreparedStatement statement = connection.prepareStatement("UPDATE bench_obj SET label = ? WHERE id = ?")) {
+            statement.setString(1, "updated");
+            statement.setInt(2, nextId());
+            return statement.executeUpdate();
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package restx.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.skife.jdbi.v2.sqlobject.PublicOnDemandHandleDing;
+import org.skife.jdbi.v2.sqlobject.SqlObjectUtils;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of a {@code @Transaction} service method doing two updates, compared with the same updates
+ * without transaction and with a raw JDBC transaction.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TransactionBenchmark {
+
+    private BenchDatabase database;
+    private BenchService generated;
+    private BenchService proxy;
+    private int id;
+
+    @Setup
+    public void setUp() {
+        database = new BenchDatabase("transaction" + Thread.currentThread().getId());
+        PublicOnDemandHandleDing handleDing = database.newHandleDing();
+        BenchDao dao = new BenchDaoSqlObject(handleDing);
+        generated = new BenchServiceSqlObject(handleDing, dao);
+        proxy = SqlObjectUtils.buildSqlObject(BenchService.class, handleDing,
+                new Class[]{BenchDao.class}, new Object[]{dao});
+    }
+
+    @TearDown
+    public void tearDown() {
+        database.close();
+    }
+
+    private int nextId() {
+        id = (id + 2) % (BenchDatabase.ROWS - 1);
+        return id;
+    }
+
+    @Benchmark
+    public int generatedTransaction() {
+        return generated.updateTwoLabels(nextId());
+    }
+
+    @Benchmark
+    public int proxyTransaction() {
+        return proxy.updateTwoLabels(nextId());
+    }
+
+    @Benchmark
+    public int withoutTransaction() {
+        return generated.updateTwoLabelsWithoutTransaction(nextId());
+    }
+
+    @Benchmark
+    public int rawJdbcTransaction() throws SQLException {
+        int id = nextId();
+        try (Connection connection = database.getDataSource().getConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement statement =
+                         connection.prepareStatement("UPDATE bench_obj SET label = ? WHERE id = ?")) {
+                statement.setString(1, "first");
+                statement.setInt(2, id);
+                int updated = statement.executeUpdate();
+                statement.setString(1, "second");
+                statement.setInt(2, id + 1);
+                updated += statement.executeUpdate();
+                connection.commit();
+                return updated;
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            }
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package org.skife.jdbi.v2;
+
+import org.skife.jdbi.v2.tweak.StatementLocator;
+
+/**
+ * Exposes the statement settings of a {@link SQLStatement} which JDBI keeps protected, to decorate them.
+ */
+public final class PublicSQLStatements {
+
+    private PublicSQLStatements() {
+    }
+
+    /**
+     * @return the locator the statement will locate its SQL with, set by the handle or by a customizer
+     */
+    public static StatementLocator getStatementLocator(SQLStatement<?> statement) {
+        return statement.getStatementLocator();
+    }
+}
@@ -0,0 +1,85 @@
+package org.skife.jdbi.v2.sqlobject;
+
+import org.skife.jdbi.cglib.proxy.MethodProxy;
+import org.skife.jdbi.com.fasterxml.classmate.ResolvedType;
+import org.skife.jdbi.com.fasterxml.classmate.members.ResolvedMethod;
+import restx.sql.SqlAsyncExecutor;
+
+import java.lang.reflect.Method;
+import java.util.Iterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+import java.util.stream.BaseStream;
+
+/**
+ * Runs the handler of a method returning a {@link CompletableFuture} on the {@link SqlAsyncExecutor} given to the
+ * {@link PublicOnDemandHandleDing}, with the handle of the executor thread.
+ *
+ * The call runs on another connection than the one of its caller, so it can't be made inside a transaction,
+ * see {@link SqlObjectMethods}.
+ */
+class AsyncHandler implements Handler {
+    private static final String RETENTION = "restx-async";
+
+    private final Handler delegate;
+
+    AsyncHandler(Handler delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * @return true for the {@link SqlQuery} and {@link SqlUpdate} methods returning a future
+     */
+    static boolean isAsync(Method method) {
+        Class<?> returnType = method.getReturnType();
+        return returnType != Object.class && returnType.isAssignableFrom(CompletableFuture.class)
+                && (method.isAnnotationPresent(SqlQuery.class) || method.isAnnotationPresent(SqlUpdate.class));
+    }
+
+    /**
+     * @return the method as if it returned the value of its future, to build its handler
+     */
+    static ResolvedMethod resultMethod(ResolvedMethod method) {
+        ResolvedType resultType = method.getReturnType().getTypeParameters().get(0);
+        Class<?> erased = resultType.getErasedType();
+        if (Iterator.class.isAssignableFrom(erased) || BaseStream.class.isAssignableFrom(erased)) {
+            throw new IllegalStateException("asynchronous method " + method.getRawMember()
+                    + " can't return an iterator or a stream");
+        }
+        ResolvedType[] argumentTypes = new ResolvedType[method.getArgumentCount()];
+        for (int i = 0; i < argumentTypes.length; i++) {
+            argumentTypes[i] = method.getArgumentType(i);
+        }
+        return new ResolvedMethod(method.getDeclaringType(), method.getAnnotations(), method.getRawMember(),
+                resultType, argumentTypes);
+    }
+
+    @Override
+    public Object invoke(HandleDing h, Object target, Object[] args, MethodProxy mp) {
+        return invoke(h, h instanceof PublicOnDemandHandleDing
+                ? ((PublicOnDemandHandleDing) h).asyncExecutor() : null, target, args, mp);
+    }
+
+    /**
+     * Runs the call on the given executor, with the handle of the given ding.
+     */
+    Object invoke(final HandleDing h, Executor executor, final Object target, final Object[] args,
+                  final MethodProxy mp) {
+        if (executor == null) {
+            throw new IllegalStateException("no SqlAsyncExecutor is given to the PublicOnDemandHandleDing"
+                    + " to run asynchronous SQL calls");
+        }
+        return CompletableFuture.supplyAsync(new Supplier<Object>() {
+            @Override
+            public Object get() {
+                h.retain(RETENTION);
+                try {
+                    return delegate.invoke(h, target, args, mp);
+                } finally {
+                    h.release(RETENTION);
+                }
+            }
+        }, executor);
+    }
+}
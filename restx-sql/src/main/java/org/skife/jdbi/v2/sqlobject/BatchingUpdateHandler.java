@@ -0,0 +1,56 @@
+package org.skife.jdbi.v2.sqlobject;
+
+import org.skife.jdbi.cglib.proxy.MethodProxy;
+import org.skife.jdbi.com.fasterxml.classmate.members.ResolvedMethod;
+import org.skife.jdbi.v2.ConcreteStatementContext;
+import org.skife.jdbi.v2.Handle;
+import org.skife.jdbi.v2.PreparedBatch;
+
+import java.lang.reflect.Method;
+
+/**
+ * Handler of a void {@link SqlUpdate} method, adding its calls to the current {@link UpdateBatch} if any.
+ */
+class BatchingUpdateHandler extends CustomizingStatementHandler {
+    private final Handler delegate;
+    private final String sql;
+
+    BatchingUpdateHandler(Class<?> sqlObjectType, ResolvedMethod method, Handler delegate) {
+        super(sqlObjectType, method);
+        Method raw = method.getRawMember();
+        this.delegate = delegate;
+        this.sql = SqlObject.getSql(raw.getAnnotation(SqlUpdate.class), raw);
+    }
+
+    static boolean isBatchable(Method method) {
+        return method.isAnnotationPresent(SqlUpdate.class) && method.getReturnType() == void.class;
+    }
+
+    @Override
+    public Object invoke(HandleDing h, Object target, Object[] args, MethodProxy mp) {
+        UpdateBatch batch = UpdateBatch.current();
+        if (batch == null) {
+            return delegate.invoke(h, target, args, mp);
+        }
+        batch.add(this, h.getHandle(), args);
+        return null;
+    }
+
+    /**
+     * @return a batch of calls to the method, customized with the arguments of its first call
+     */
+    PreparedBatch prepare(Handle handle, Object[] args) {
+        PreparedBatch batch = handle.prepareBatch(sql);
+        populateSqlObjectData((ConcreteStatementContext) batch.getContext());
+        applyCustomizers(batch, args);
+        return batch;
+    }
+
+    /**
+     * Adds a call to the batch, binding its arguments now: the binders of JDBI read the properties of beans when
+     * they bind them.
+     */
+    void bind(PreparedBatch batch, Object[] args) {
+        applyBinders(batch.add(), args);
+    }
+}
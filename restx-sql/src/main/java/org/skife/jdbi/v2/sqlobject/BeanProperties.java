@@ -0,0 +1,72 @@
+package org.skife.jdbi.v2.sqlobject;
+
+import java.beans.IntrospectionException;
+import java.beans.Introspector;
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Readers of the properties of beans, matched with columns by name ignoring case and underscores.
+ */
+final class BeanProperties {
+
+    private BeanProperties() {
+    }
+
+    /**
+     * @return the readers of the public getters and fields of the bean type, by normalized name
+     */
+    static Map<String, Reader> readersOf(Class<?> beanType) {
+        Map<String, Reader> readers = new LinkedHashMap<String, Reader>();
+        for (Field field : beanType.getFields()) {
+            if (!Modifier.isStatic(field.getModifiers())) {
+                readers.put(normalize(field.getName()), new Reader(field.getName(), null, field));
+            }
+        }
+        try {
+            for (PropertyDescriptor descriptor : Introspector.getBeanInfo(beanType, Object.class)
+                    .getPropertyDescriptors()) {
+                if (descriptor.getReadMethod() != null) {
+                    readers.put(normalize(descriptor.getName()),
+                            new Reader(descriptor.getName(), descriptor.getReadMethod(), null));
+                }
+            }
+        } catch (IntrospectionException e) {
+            throw new IllegalStateException("unable to introspect " + beanType.getName(), e);
+        }
+        return readers;
+    }
+
+    static String normalize(String name) {
+        return name.replace("_", "").toLowerCase(Locale.ROOT);
+    }
+
+    static final class Reader {
+        // snake case name of the property
+        final String column;
+        private final Method getter;
+        private final Field field;
+
+        private Reader(String property, Method getter, Field field) {
+            this.column = property.replaceAll("([a-z0-9])([A-Z])", "$1_$2").toLowerCase(Locale.ROOT);
+            this.getter = getter;
+            this.field = field;
+        }
+
+        Object read(Object bean) {
+            try {
+                return getter != null ? getter.invoke(bean) : field.get(bean);
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            } catch (InvocationTargetException e) {
+                throw new IllegalStateException("unable to read " + column + " of " + bean, e.getCause());
+            }
+        }
+    }
+}
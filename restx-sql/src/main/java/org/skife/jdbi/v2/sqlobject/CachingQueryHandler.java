@@ -0,0 +1,92 @@
+package org.skife.jdbi.v2.sqlobject;
+
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.ExecutionError;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import org.skife.jdbi.cglib.proxy.MethodProxy;
+import restx.sql.CachedQuery;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Caches the results of a {@link CachedQuery} method, keyed by its arguments.
+ *
+ * Hits are looked up before the handle is retained, see {@link #lookup(HandleDing, Object[])}, so they use no
+ * connection.
+ */
+class CachingQueryHandler implements Handler {
+    // guava caches do not accept null values
+    private static final Object NULL = new Object();
+    static final Object MISS = new Object();
+
+    private final Handler delegate;
+    private final String[] tables;
+    private final Cache<List<Object>, Object> cache;
+
+    CachingQueryHandler(Handler delegate, CachedQuery cachedQuery, ClassLoader classLoader) {
+        this.delegate = delegate;
+        this.tables = cachedQuery.tables();
+        this.cache = CacheBuilder.newBuilder()
+                .expireAfterWrite(cachedQuery.ttl(), cachedQuery.unit())
+                .maximumSize(cachedQuery.maxSize())
+                .build();
+        QueryResultCaches.register(tables, cache, classLoader);
+    }
+
+    /**
+     * @return the cached result of the given arguments, or {@link #MISS} when it is not cached or the current
+     * thread runs a transaction, which may read its own uncommitted writes
+     */
+    Object lookup(HandleDing h, Object[] args) {
+        if (!(h instanceof PublicOnDemandHandleDing)) {
+            return MISS;
+        }
+        // a thread which does not hold the handle runs no transaction, and opens no handle to find it out
+        if (((PublicOnDemandHandleDing) h).holdsHandle() && h.getHandle().isInTransaction()) {
+            return MISS;
+        }
+        Object result = cache.getIfPresent(keyOf(args));
+        if (result == null) {
+            return MISS;
+        }
+        return result == NULL ? null : result;
+    }
+
+    @Override
+    public Object invoke(final HandleDing h, final Object target, final Object[] args, final MethodProxy mp) {
+        if (h.getHandle().isInTransaction()) {
+            // the transaction may read its own uncommitted writes
+            return delegate.invoke(h, target, args, mp);
+        }
+
+        List<Object> key = keyOf(args);
+        long generation = QueryResultCaches.generation(tables);
+        Object result;
+        try {
+            result = cache.get(key, new Callable<Object>() {
+                @Override
+                public Object call() {
+                    Object result = delegate.invoke(h, target, args, mp);
+                    return result == null ? NULL : result;
+                }
+            });
+        } catch (ExecutionException | UncheckedExecutionException | ExecutionError e) {
+            throw Throwables.propagate(e.getCause());
+        }
+        if (QueryResultCaches.generation(tables) != generation) {
+            // the tables were written during the load, the result may predate the write
+            cache.invalidate(key);
+        }
+        return result == NULL ? null : result;
+    }
+
+    private static List<Object> keyOf(Object[] args) {
+        return args == null ? Collections.emptyList() : Arrays.asList(args);
+    }
+}
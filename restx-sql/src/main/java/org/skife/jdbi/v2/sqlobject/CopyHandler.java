@@ -0,0 +1,45 @@
+package org.skife.jdbi.v2.sqlobject;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+import org.skife.jdbi.v2.Handle;
+import org.skife.jdbi.v2.exceptions.UnableToExecuteStatementException;
+
+import java.lang.reflect.Method;
+import java.sql.SQLException;
+
+/**
+ * Base of the handlers of the {@link restx.sql.SqlCopyIn} and {@link restx.sql.SqlCopyOut} methods, which run
+ * Postgres COPY commands with the {@link CopyManager} of the connection of the handle.
+ *
+ * pgjdbc is only loaded by these handlers, so it is needed only by the components using COPY.
+ */
+abstract class CopyHandler implements Handler {
+    private final Class<?> returnType;
+
+    CopyHandler(Method method) {
+        Class<?> returnType = method.getReturnType();
+        if (returnType != void.class && returnType != long.class && returnType != Long.class
+                && returnType != int.class && returnType != Integer.class) {
+            throw new IllegalStateException("COPY method " + method + " must return a row count or nothing");
+        }
+        this.returnType = returnType;
+    }
+
+    static CopyManager copyManager(Handle handle) {
+        try {
+            return handle.getConnection().unwrap(PGConnection.class).getCopyAPI();
+        } catch (SQLException e) {
+            throw new UnableToExecuteStatementException("COPY requires a Postgres connection", e);
+        }
+    }
+
+    Object result(long rows) {
+        if (returnType == long.class || returnType == Long.class) {
+            return rows;
+        } else if (returnType == int.class || returnType == Integer.class) {
+            return Math.toIntExact(rows);
+        }
+        return null;
+    }
+}
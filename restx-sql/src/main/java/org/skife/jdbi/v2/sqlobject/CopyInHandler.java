@@ -0,0 +1,177 @@
+package org.skife.jdbi.v2.sqlobject;
+
+import com.google.common.base.Joiner;
+import org.postgresql.copy.CopyIn;
+import org.skife.jdbi.cglib.proxy.MethodProxy;
+import org.skife.jdbi.com.fasterxml.classmate.ResolvedType;
+import org.skife.jdbi.com.fasterxml.classmate.members.ResolvedMethod;
+import org.skife.jdbi.v2.exceptions.UnableToExecuteStatementException;
+import restx.sql.SqlCopyIn;
+
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Handler of the {@link SqlCopyIn} methods, sending the beans in the text format of COPY.
+ *
+ * The properties of the bean type are resolved once, when the handler is built, and the rows are sent in chunks
+ * as the beans are read, so they are never all held in memory.
+ */
+class CopyInHandler extends CopyHandler {
+    private static final int CHUNK_SIZE = 64 * 1024;
+    // instants are sent in the default time zone with its offset, to the microsecond as Postgres, so a timestamp
+    // column gets the local date and time as with JDBC, and a timestamptz one the instant
+    private static final DateTimeFormatter INSTANT_FORMAT =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSSSSSxxx");
+
+    private final String sql;
+    private final boolean iterator;
+    private final BeanProperties.Reader[] readers;
+
+    CopyInHandler(ResolvedMethod method) {
+        super(method.getRawMember());
+        Method raw = method.getRawMember();
+        if (method.getArgumentCount() != 1) {
+            throw new IllegalStateException("@SqlCopyIn method " + raw + " must take a single Iterable or Iterator");
+        }
+        ResolvedType argumentType = method.getArgumentType(0);
+        List<ResolvedType> iterableParameters = argumentType.typeParametersFor(Iterable.class);
+        List<ResolvedType> iteratorParameters = argumentType.typeParametersFor(Iterator.class);
+        List<ResolvedType> parameters = iterableParameters != null ? iterableParameters : iteratorParameters;
+        if (parameters == null || parameters.isEmpty() || parameters.get(0).getErasedType() == Object.class) {
+            throw new IllegalStateException("@SqlCopyIn method " + raw
+                    + " must take a single Iterable or Iterator of beans");
+        }
+        this.iterator = iterableParameters == null;
+
+        SqlCopyIn copyIn = raw.getAnnotation(SqlCopyIn.class);
+        Class<?> beanType = parameters.get(0).getErasedType();
+        Map<String, BeanProperties.Reader> properties = BeanProperties.readersOf(beanType);
+        List<String> columns = new ArrayList<String>();
+        List<BeanProperties.Reader> readers = new ArrayList<BeanProperties.Reader>();
+        if (copyIn.columns().length == 0) {
+            for (BeanProperties.Reader reader : properties.values()) {
+                columns.add(reader.column);
+                readers.add(reader);
+            }
+        } else {
+            for (String column : copyIn.columns()) {
+                BeanProperties.Reader reader = properties.get(BeanProperties.normalize(column));
+                if (reader == null) {
+                    throw new IllegalStateException("no readable property of " + beanType.getName()
+                            + " for column " + column + " of @SqlCopyIn method " + raw);
+                }
+                columns.add(column);
+                readers.add(reader);
+            }
+        }
+        this.sql = "COPY " + copyIn.table() + " (" + Joiner.on(", ").join(columns) + ") FROM STDIN";
+        this.readers = readers.toArray(new BeanProperties.Reader[readers.size()]);
+    }
+
+    @Override
+    public Object invoke(HandleDing h, Object target, Object[] args, MethodProxy mp) {
+        Iterator<?> rows = iterator ? (Iterator<?>) args[0] : ((Iterable<?>) args[0]).iterator();
+        CopyIn copyIn = null;
+        try {
+            copyIn = copyManager(h.getHandle()).copyIn(sql);
+            ZoneId zone = ZoneId.systemDefault();
+            StringBuilder chunk = new StringBuilder(CHUNK_SIZE + 1024);
+            while (rows.hasNext()) {
+                encode(rows.next(), zone, chunk);
+                if (chunk.length() >= CHUNK_SIZE) {
+                    write(copyIn, chunk);
+                }
+            }
+            write(copyIn, chunk);
+            long count = copyIn.endCopy();
+            copyIn = null;
+            return result(count);
+        } catch (SQLException e) {
+            throw new UnableToExecuteStatementException("unable to run " + sql, e);
+        } finally {
+            if (copyIn != null && copyIn.isActive()) {
+                try {
+                    copyIn.cancelCopy();
+                } catch (SQLException e) {
+                    // the error of the copy is thrown
+                }
+            }
+        }
+    }
+
+    private static void write(CopyIn copyIn, StringBuilder chunk) throws SQLException {
+        if (chunk.length() > 0) {
+            byte[] bytes = chunk.toString().getBytes(StandardCharsets.UTF_8);
+            copyIn.writeToCopy(bytes, 0, bytes.length);
+            chunk.setLength(0);
+        }
+    }
+
+    private void encode(Object bean, ZoneId zone, StringBuilder out) {
+        for (int i = 0; i < readers.length; i++) {
+            if (i > 0) {
+                out.append('\t');
+            }
+            encodeValue(readers[i].read(bean), zone, out);
+        }
+        out.append('\n');
+    }
+
+    /**
+     * Appends the value in the text format of COPY, dates in the given time zone.
+     */
+    static void encodeValue(Object value, ZoneId zone, StringBuilder out) {
+        if (value == null) {
+            out.append("\\N");
+        } else if (value instanceof byte[]) {
+            out.append("\\\\x");
+            for (byte b : (byte[]) value) {
+                out.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+        } else if (value instanceof Enum) {
+            escape(((Enum<?>) value).name(), out);
+        } else if (value instanceof Timestamp) {
+            encodeInstant(((Timestamp) value).toInstant(), zone, out);
+        } else if (value.getClass() == java.util.Date.class) {
+            encodeInstant(((java.util.Date) value).toInstant(), zone, out);
+        } else {
+            escape(value.toString(), out);
+        }
+    }
+
+    private static void encodeInstant(Instant instant, ZoneId zone, StringBuilder out) {
+        INSTANT_FORMAT.formatTo(instant.atZone(zone), out);
+    }
+
+    private static void escape(String value, StringBuilder out) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\':
+                    out.append("\\\\");
+                    break;
+                case '\t':
+                    out.append("\\t");
+                    break;
+                case '\n':
+                    out.append("\\n");
+                    break;
+                case '\r':
+                    out.append("\\r");
+                    break;
+                default:
+                    out.append(c);
+            }
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package org.skife.jdbi.v2.sqlobject;
+
+import org.skife.jdbi.cglib.proxy.MethodProxy;
+import org.skife.jdbi.v2.exceptions.UnableToExecuteStatementException;
+import restx.sql.SqlCopyOut;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.lang.reflect.Method;
+import java.sql.SQLException;
+
+/**
+ * Handler of the {@link SqlCopyOut} methods, streaming the rows to the given writer or output stream.
+ */
+class CopyOutHandler extends CopyHandler {
+    private final String sql;
+
+    CopyOutHandler(Method method) {
+        super(method);
+        Class<?>[] parameterTypes = method.getParameterTypes();
+        if (parameterTypes.length != 1
+                || (parameterTypes[0] != Writer.class && parameterTypes[0] != OutputStream.class)) {
+            throw new IllegalStateException("@SqlCopyOut method " + method
+                    + " must take a single Writer or OutputStream");
+        }
+        this.sql = method.getAnnotation(SqlCopyOut.class).value();
+    }
+
+    @Override
+    public Object invoke(HandleDing h, Object target, Object[] args, MethodProxy mp) {
+        try {
+            long rows = args[0] instanceof Writer
+                    ? copyManager(h.getHandle()).copyOut(sql, (Writer) args[0])
+                    : copyManager(h.getHandle()).copyOut(sql, (OutputStream) args[0]);
+            return result(rows);
+        } catch (SQLException | IOException e) {
+            throw new UnableToExecuteStatementException("unable to run " + sql, e);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package org.skife.jdbi.v2.sqlobject;
+
+import org.skife.jdbi.cglib.proxy.MethodProxy;
+import org.skife.jdbi.com.fasterxml.classmate.members.ResolvedMethod;
+import org.skife.jdbi.v2.ConcreteStatementContext;
+import org.skife.jdbi.v2.Update;
+
+import java.lang.reflect.Method;
+
+/**
+ * Handler of the {@link SqlUpdate} methods returning a future, which {@link UpdateHandler} rejects:
+ * returns the update count, or null for a future of Void.
+ */
+class CountingUpdateHandler extends CustomizingStatementHandler {
+    private final String sql;
+    private final boolean returnsCount;
+
+    CountingUpdateHandler(Class<?> sqlObjectType, ResolvedMethod method) {
+        super(sqlObjectType, method);
+        Method raw = method.getRawMember();
+        if (raw.isAnnotationPresent(GetGeneratedKeys.class)) {
+            throw new IllegalStateException("@GetGeneratedKeys is not supported on asynchronous method " + raw);
+        }
+        this.sql = SqlObject.getSql(raw.getAnnotation(SqlUpdate.class), raw);
+        this.returnsCount = method.getReturnType().getErasedType() != Void.class;
+    }
+
+    @Override
+    public Object invoke(HandleDing h, Object target, Object[] args, MethodProxy mp) {
+        Update update = h.getHandle().createStatement(sql);
+        populateSqlObjectData((ConcreteStatementContext) update.getContext());
+        applyCustomizers(update, args);
+        applyBinders(update, args);
+        int count = update.execute();
+        return returnsCount ? count : null;
+    }
+}
@@ -0,0 +1,25 @@
+package org.skife.jdbi.v2.sqlobject;
+
+import org.skife.jdbi.cglib.proxy.MethodProxy;
+
+/**
+ * Invalidates the cached query results reading the tables written by a {@link restx.sql.WritesTables} method.
+ */
+class InvalidatingHandler implements Handler {
+    private final Handler delegate;
+    private final String[] tables;
+
+    InvalidatingHandler(Handler delegate, String[] tables) {
+        this.delegate = delegate;
+        this.tables = tables;
+    }
+
+    @Override
+    public Object invoke(HandleDing h, Object target, Object[] args, MethodProxy mp) {
+        try {
+            return delegate.invoke(h, target, args, mp);
+        } finally {
+            QueryResultCaches.invalidate(tables, h.getHandle().isInTransaction());
+        }
+    }
+}
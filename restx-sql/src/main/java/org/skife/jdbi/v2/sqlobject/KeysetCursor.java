@@ -0,0 +1,135 @@
+package org.skife.jdbi.v2.sqlobject;
+
+import restx.sql.InvalidCursorException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Encoding of the key values of the last row of a {@link restx.sql.KeysetPage} in its cursor.
+ *
+ * Each value is written with its type, so it is bound with the same type to the query of the next page.
+ * The cursor also carries the fingerprint of the paged method, so the cursors of other methods are rejected.
+ */
+final class KeysetCursor {
+    private static final int VERSION = 1;
+
+    private KeysetCursor() {
+    }
+
+    static String encode(int fingerprint, Object[] values) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(16 * values.length + 8);
+        try {
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(VERSION);
+            out.writeInt(fingerprint);
+            for (Object value : values) {
+                write(out, value);
+            }
+            out.flush();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes.toByteArray());
+    }
+
+    private static void write(DataOutputStream out, Object value) throws IOException {
+        if (value == null) {
+            out.writeByte('N');
+        } else if (value instanceof Long) {
+            out.writeByte('J');
+            out.writeLong((Long) value);
+        } else if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            out.writeByte('I');
+            out.writeInt(((Number) value).intValue());
+        } else if (value instanceof String) {
+            out.writeByte('S');
+            out.writeUTF((String) value);
+        } else if (value instanceof Enum) {
+            // bound by name, like JDBI binds enums
+            out.writeByte('S');
+            out.writeUTF(((Enum<?>) value).name());
+        } else if (value instanceof Boolean) {
+            out.writeByte('Z');
+            out.writeBoolean((Boolean) value);
+        } else if (value instanceof BigDecimal) {
+            out.writeByte('B');
+            out.writeUTF(value.toString());
+        } else if (value instanceof UUID) {
+            out.writeByte('U');
+            out.writeLong(((UUID) value).getMostSignificantBits());
+            out.writeLong(((UUID) value).getLeastSignificantBits());
+        } else if (value instanceof java.sql.Date) {
+            out.writeByte('D');
+            out.writeLong(((java.sql.Date) value).getTime());
+        } else if (value instanceof java.util.Date) {
+            out.writeByte('T');
+            out.writeLong(((java.util.Date) value).getTime());
+            out.writeInt(value instanceof Timestamp ? ((Timestamp) value).getNanos() : -1);
+        } else {
+            throw new IllegalStateException("unsupported keyset key type " + value.getClass().getName()
+                    + ", keys must be numbers, strings, enums, booleans, dates or UUIDs");
+        }
+    }
+
+    /**
+     * @return the key values of the cursor
+     * @throws InvalidCursorException if the cursor was not returned by the method of the given fingerprint
+     */
+    static Object[] decode(String cursor, int fingerprint, int keys) {
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(Base64.getUrlDecoder().decode(cursor)));
+            if (in.readByte() != VERSION || in.readInt() != fingerprint) {
+                throw new InvalidCursorException("page cursor " + cursor + " was not returned by this query");
+            }
+            Object[] values = new Object[keys];
+            for (int i = 0; i < keys; i++) {
+                values[i] = read(in);
+            }
+            if (in.available() > 0) {
+                throw new InvalidCursorException("malformed page cursor " + cursor);
+            }
+            return values;
+        } catch (IOException | IllegalArgumentException e) {
+            throw new InvalidCursorException("malformed page cursor " + cursor);
+        }
+    }
+
+    private static Object read(DataInputStream in) throws IOException {
+        byte type = in.readByte();
+        switch (type) {
+            case 'N':
+                return null;
+            case 'J':
+                return in.readLong();
+            case 'I':
+                return in.readInt();
+            case 'S':
+                return in.readUTF();
+            case 'Z':
+                return in.readBoolean();
+            case 'B':
+                return new BigDecimal(in.readUTF());
+            case 'U':
+                return new UUID(in.readLong(), in.readLong());
+            case 'D':
+                return new java.sql.Date(in.readLong());
+            case 'T':
+                Timestamp timestamp = new Timestamp(in.readLong());
+                int nanos = in.readInt();
+                if (nanos >= 0) {
+                    timestamp.setNanos(nanos);
+                }
+                return timestamp;
+            default:
+                throw new IOException("unknown key type " + type);
+        }
+    }
+}
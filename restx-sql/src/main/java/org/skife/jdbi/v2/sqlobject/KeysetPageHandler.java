@@ -0,0 +1,226 @@
+package org.skife.jdbi.v2.sqlobject;
+
+import org.skife.jdbi.cglib.proxy.MethodProxy;
+import org.skife.jdbi.com.fasterxml.classmate.ResolvedType;
+import org.skife.jdbi.com.fasterxml.classmate.TypeResolver;
+import org.skife.jdbi.com.fasterxml.classmate.members.ResolvedMethod;
+import org.skife.jdbi.v2.PublicSQLStatements;
+import org.skife.jdbi.v2.SQLStatement;
+import org.skife.jdbi.v2.StatementContext;
+import org.skife.jdbi.v2.tweak.StatementLocator;
+import restx.sql.KeysetPage;
+import restx.sql.KeysetPaged;
+import restx.sql.PageCursor;
+import restx.sql.PageSize;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Handler of the {@link KeysetPaged} methods, running their query for the rows following the keys of the cursor.
+ *
+ * One more row than the page size is read, to know whether there is a next page. The cursor of the next page
+ * holds the keys of the last row of the page, read from the mapped row.
+ */
+class KeysetPageHandler extends QueryHandler {
+    private static final String LIMIT = "_keysetLimit";
+    private static final String KEY = "_keyset";
+
+    private final String[] keys;
+    private final int defaultSize;
+    private final int maxSize;
+    private final int cursorIndex;
+    private final int sizeIndex;
+    private final int fingerprint;
+    // null when the rows are the single key
+    private final BeanProperties.Reader[] keyReaders;
+    private final String firstPageSuffix;
+    private final String nextPageSuffix;
+
+    /**
+     * @return true for the methods returning a {@link KeysetPage} or annotated with {@link KeysetPaged}
+     */
+    static boolean isPaged(Method method) {
+        return method.getReturnType() == KeysetPage.class || method.isAnnotationPresent(KeysetPaged.class);
+    }
+
+    KeysetPageHandler(Class<?> sqlObjectType, ResolvedMethod method) {
+        this(sqlObjectType, method, rowsMethod(method));
+    }
+
+    private KeysetPageHandler(Class<?> sqlObjectType, ResolvedMethod method, ResolvedMethod rowsMethod) {
+        super(sqlObjectType, rowsMethod, ResultReturnThing.forType(rowsMethod));
+        Method raw = method.getRawMember();
+        KeysetPaged paged = raw.getAnnotation(KeysetPaged.class);
+        if (paged == null) {
+            throw new IllegalStateException("method " + raw + " returning a KeysetPage must be @KeysetPaged");
+        }
+        if (paged.keys().length == 0 || paged.maxSize() < 1
+                || paged.defaultSize() < 1 || paged.defaultSize() > paged.maxSize()) {
+            throw new IllegalStateException("invalid @KeysetPaged on " + raw
+                    + ": keys are required and defaultSize must be between 1 and maxSize");
+        }
+        this.keys = paged.keys();
+        this.defaultSize = paged.defaultSize();
+        this.maxSize = paged.maxSize();
+        this.cursorIndex = argumentIndex(raw, PageCursor.class, String.class);
+        if (cursorIndex < 0) {
+            throw new IllegalStateException("@KeysetPaged method " + raw + " must take a @PageCursor String");
+        }
+        this.sizeIndex = argumentIndex(raw, PageSize.class, int.class, Integer.class);
+        this.fingerprint = (sqlObjectType.getName() + "#" + SqlObjectMethods.metricName(raw)
+                + Arrays.toString(keys) + paged.descending()).hashCode();
+        this.keyReaders = keyReaders(raw, rowsMethod.getReturnType().getTypeParameters().get(0).getErasedType());
+
+        String order = paged.descending() ? " DESC" : "";
+        StringBuilder orderBy = new StringBuilder(" ORDER BY ");
+        StringBuilder columns = new StringBuilder();
+        StringBuilder values = new StringBuilder();
+        for (int i = 0; i < keys.length; i++) {
+            String separator = i == 0 ? "" : ", ";
+            orderBy.append(separator).append(keys[i]).append(order);
+            columns.append(separator).append(keys[i]);
+            values.append(separator).append(':').append(KEY).append(i);
+        }
+        orderBy.append(" LIMIT :").append(LIMIT);
+        String predicate = keys.length == 1
+                ? columns + (paged.descending() ? " < " : " > ") + values
+                : "(" + columns + ")" + (paged.descending() ? " < " : " > ") + "(" + values + ")";
+        this.firstPageSuffix = ") keyset_page" + orderBy;
+        this.nextPageSuffix = ") keyset_page WHERE " + predicate + orderBy;
+    }
+
+    /**
+     * @return the method as if it returned the list of the rows of its page, to build its query
+     */
+    private static ResolvedMethod rowsMethod(ResolvedMethod method) {
+        List<ResolvedType> pageParameters = method.getReturnType().typeParametersFor(KeysetPage.class);
+        if (pageParameters == null || pageParameters.isEmpty()
+                || pageParameters.get(0).getErasedType() == Object.class) {
+            throw new IllegalStateException("@KeysetPaged method " + method.getRawMember()
+                    + " must return a KeysetPage of rows");
+        }
+        ResolvedType rowsType = new TypeResolver().resolve(List.class, pageParameters.get(0));
+        ResolvedType[] argumentTypes = new ResolvedType[method.getArgumentCount()];
+        for (int i = 0; i < argumentTypes.length; i++) {
+            argumentTypes[i] = method.getArgumentType(i);
+        }
+        return new ResolvedMethod(method.getDeclaringType(), method.getAnnotations(), method.getRawMember(),
+                rowsType, argumentTypes);
+    }
+
+    private static int argumentIndex(Method method, Class<? extends Annotation> annotation, Class<?>... types) {
+        int index = -1;
+        Annotation[][] parameterAnnotations = method.getParameterAnnotations();
+        for (int i = 0; i < parameterAnnotations.length; i++) {
+            for (Annotation parameterAnnotation : parameterAnnotations[i]) {
+                if (annotation.isInstance(parameterAnnotation)) {
+                    if (index >= 0 || !Arrays.asList(types).contains(method.getParameterTypes()[i])) {
+                        throw new IllegalStateException("@KeysetPaged method " + method + " must take a single @"
+                                + annotation.getSimpleName() + " " + types[types.length - 1].getSimpleName());
+                    }
+                    index = i;
+                }
+            }
+        }
+        return index;
+    }
+
+    private BeanProperties.Reader[] keyReaders(Method method, Class<?> rowType) {
+        if (keys.length == 1 && isKeyType(rowType)) {
+            return null;
+        }
+        Map<String, BeanProperties.Reader> properties = BeanProperties.readersOf(rowType);
+        BeanProperties.Reader[] readers = new BeanProperties.Reader[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            readers[i] = properties.get(BeanProperties.normalize(keys[i]));
+            if (readers[i] == null) {
+                throw new IllegalStateException("no readable property of " + rowType.getName()
+                        + " for key " + keys[i] + " of @KeysetPaged method " + method);
+            }
+        }
+        return readers;
+    }
+
+    private static boolean isKeyType(Class<?> type) {
+        return Number.class.isAssignableFrom(type) || type == String.class || type.isEnum() || type == UUID.class
+                || Date.class.isAssignableFrom(type) || type == BigDecimal.class;
+    }
+
+    @Override
+    public Object invoke(HandleDing h, Object target, Object[] args, MethodProxy mp) {
+        String cursor = (String) args[cursorIndex];
+        Integer requested = sizeIndex < 0 ? null : (Integer) args[sizeIndex];
+        int size = requested == null || requested < 1 ? defaultSize : Math.min(requested, maxSize);
+
+        // the cursor argument is not bound, it carries the page to the customization of the query
+        Object[] pageArgs = args.clone();
+        pageArgs[cursorIndex] = new Page(cursor == null || cursor.isEmpty()
+                ? null : KeysetCursor.decode(cursor, fingerprint, keys.length), size);
+        @SuppressWarnings("unchecked")
+        List<Object> rows = (List<Object>) super.invoke(h, target, pageArgs, mp);
+        if (rows.size() <= size) {
+            return new KeysetPage<Object>(rows, null);
+        }
+
+        rows.remove(size);
+        Object last = rows.get(size - 1);
+        Object[] lastKeys = new Object[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            lastKeys[i] = keyReaders == null ? last : keyReaders[i].read(last);
+        }
+        return new KeysetPage<Object>(rows, KeysetCursor.encode(fingerprint, lastKeys));
+    }
+
+    @Override
+    protected void applyCustomizers(SQLStatement<?> q, Object[] args) {
+        super.applyCustomizers(q, args);
+        Page page = (Page) args[cursorIndex];
+        q.setStatementLocator(new PageLocator(PublicSQLStatements.getStatementLocator(q),
+                page.after == null ? firstPageSuffix : nextPageSuffix));
+        if (page.after != null) {
+            for (int i = 0; i < page.after.length; i++) {
+                q.bind(KEY + i, page.after[i]);
+            }
+        }
+        q.bind(LIMIT, page.size + 1);
+    }
+
+    private static final class Page {
+        private final Object[] after;
+        private final int size;
+
+        private Page(Object[] after, int size) {
+            this.after = after;
+            this.size = size;
+        }
+    }
+
+    /**
+     * Wraps the located query in the keyset query.
+     */
+    private static final class PageLocator implements StatementLocator {
+        private final StatementLocator delegate;
+        private final String suffix;
+
+        private PageLocator(StatementLocator delegate, String suffix) {
+            this.delegate = delegate;
+            this.suffix = suffix;
+        }
+
+        @Override
+        public String locate(String name, StatementContext ctx) throws Exception {
+            String sql = delegate.locate(name, ctx).trim();
+            if (sql.endsWith(";")) {
+                sql = sql.substring(0, sql.length() - 1);
+            }
+            return "SELECT * FROM (" + sql + suffix;
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package org.skife.jdbi.v2.sqlobject;
+
+import com.google.common.cache.Cache;
+import restx.sql.SqlObjectCaches;
+
+import java.lang.ref.WeakReference;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Registry of the {@link restx.sql.CachedQuery} caches, by table.
+ *
+ * Writes made in a transaction invalidate the caches immediately and once again when the transaction ends,
+ * so results read by other threads before the commit do not stay in the caches.
+ * Each invalidation of a table increments its generation, so that results loaded while it was invalidated are
+ * dropped rather than cached, see {@link #generation(String[])}.
+ *
+ * Caches are held weakly, along with the class loader of their component: they are dropped when their handlers
+ * are collected or when the class loader is evicted.
+ */
+final class QueryResultCaches {
+    private static final ConcurrentMap<String, List<Registration>> cachesByTable =
+            new ConcurrentHashMap<String, List<Registration>>();
+    private static final ConcurrentMap<String, AtomicLong> generations = new ConcurrentHashMap<String, AtomicLong>();
+    private static final ThreadLocal<Set<String>> pendingInvalidations = new ThreadLocal<Set<String>>();
+
+    private QueryResultCaches() {
+    }
+
+    static void register(String[] tables, Cache<?, ?> cache, ClassLoader classLoader) {
+        for (String table : tables) {
+            String key = table.toLowerCase(Locale.ROOT);
+            List<Registration> caches = cachesByTable.get(key);
+            if (caches == null) {
+                cachesByTable.putIfAbsent(key, new CopyOnWriteArrayList<Registration>());
+                caches = cachesByTable.get(key);
+            }
+            prune(caches);
+            caches.add(new Registration(cache, classLoader));
+        }
+    }
+
+    /**
+     * Drops the caches of the components of the given class loader and its descendants, with their results.
+     */
+    static void evict(ClassLoader classLoader) {
+        for (List<Registration> caches : cachesByTable.values()) {
+            for (Registration registration : caches) {
+                ClassLoader loader = registration.classLoader.get();
+                if (loader == null || SqlObjectCaches.isDescendant(loader, classLoader)) {
+                    caches.remove(registration);
+                    Cache<?, ?> cache = registration.cache.get();
+                    if (cache != null) {
+                        cache.invalidateAll();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @return a value which changes each time one of the given tables is invalidated
+     */
+    static long generation(String[] tables) {
+        long generation = 0;
+        for (String table : tables) {
+            AtomicLong tableGeneration = generations.get(table.toLowerCase(Locale.ROOT));
+            if (tableGeneration != null) {
+                generation += tableGeneration.get();
+            }
+        }
+        return generation;
+    }
+
+    static void invalidate(String[] tables, boolean inTransaction) {
+        for (String table : tables) {
+            invalidate(table);
+        }
+        if (inTransaction) {
+            Set<String> pending = pendingInvalidations.get();
+            if (pending == null) {
+                pending = new HashSet<String>();
+                pendingInvalidations.set(pending);
+            }
+            for (String table : tables) {
+                pending.add(table);
+            }
+        }
+    }
+
+    /**
+     * Invalidates the tables written by the transaction of the current thread, to call once it is committed
+     * or rolled back.
+     */
+    static void transactionEnded() {
+        Set<String> pending = pendingInvalidations.get();
+        if (pending != null) {
+            pendingInvalidations.remove();
+            for (String table : pending) {
+                invalidate(table);
+            }
+        }
+    }
+
+    private static void invalidate(String table) {
+        String key = table.toLowerCase(Locale.ROOT);
+        AtomicLong generation = generations.get(key);
+        if (generation == null) {
+            generations.putIfAbsent(key, new AtomicLong());
+            generation = generations.get(key);
+        }
+        // incremented before clearing, so loads running across the invalidation see a new generation
+        generation.incrementAndGet();
+        List<Registration> caches = cachesByTable.get(key);
+        if (caches != null) {
+            for (Registration registration : caches) {
+                Cache<?, ?> cache = registration.cache.get();
+                if (cache != null) {
+                    cache.invalidateAll();
+                }
+            }
+        }
+    }
+
+    private static void prune(List<Registration> caches) {
+        for (Registration registration : caches) {
+            if (registration.cache.get() == null) {
+                caches.remove(registration);
+            }
+        }
+    }
+
+    private static final class Registration {
+        private final WeakReference<Cache<?, ?>> cache;
+        private final WeakReference<ClassLoader> classLoader;
+
+        private Registration(Cache<?, ?> cache, ClassLoader classLoader) {
+            this.cache = new WeakReference<Cache<?, ?>>(cache);
+            this.classLoader = new WeakReference<ClassLoader>(classLoader);
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package org.skife.jdbi.v2.sqlobject;
+
+import org.skife.jdbi.cglib.proxy.MethodProxy;
+import org.skife.jdbi.com.fasterxml.classmate.members.ResolvedMethod;
+import org.skife.jdbi.v2.ClasspathStatementLocator;
+import org.skife.jdbi.v2.Query;
+import restx.sql.Redacted;
+import restx.sql.SqlSlowQueries;
+import restx.sql.SqlSlowQuery;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.stream.BaseStream;
+
+/**
+ * Logs the calls of a SQL statement method lasting more than the threshold of {@link SqlSlowQueries}.
+ *
+ * Only the statement is timed: handle acquisition is not, and cached results don't reach this handler.
+ * Queries and updates called through an on demand handle can be explained, with a handle of the explaining thread.
+ */
+class SlowQueryHandler implements Handler {
+
+    private static final String EXPLAIN_RETENTION = "restx-explain";
+
+    private final Handler delegate;
+    private final Class<?> component;
+    private final String method;
+    private final String sql;
+    private final String[] parameterNames;
+    private final boolean[] redacted;
+    private final ExplainHandler explainer;
+
+    SlowQueryHandler(Class<?> sqlObjectType, ResolvedMethod resolvedMethod, Handler delegate) {
+        Method raw = resolvedMethod.getRawMember();
+        this.delegate = delegate;
+        this.component = sqlObjectType;
+        this.method = SqlObjectMethods.metricName(raw);
+        this.sql = SqlObjectMethods.sqlOf(raw);
+
+        Annotation[][] parameterAnnotations = raw.getParameterAnnotations();
+        this.parameterNames = new String[parameterAnnotations.length];
+        this.redacted = new boolean[parameterAnnotations.length];
+        for (int i = 0; i < parameterAnnotations.length; i++) {
+            parameterNames[i] = "arg" + i;
+            for (Annotation annotation : parameterAnnotations[i]) {
+                if (annotation instanceof Bind) {
+                    parameterNames[i] = ((Bind) annotation).value();
+                } else if (annotation instanceof Redacted) {
+                    redacted[i] = true;
+                }
+            }
+        }
+
+        boolean explainable = (raw.isAnnotationPresent(SqlQuery.class) || raw.isAnnotationPresent(SqlUpdate.class))
+                && ClasspathStatementLocator.looksLikeSql(sql);
+        this.explainer = explainable ? new ExplainHandler(sqlObjectType, resolvedMethod, sql) : null;
+    }
+
+    @Override
+    public Object invoke(HandleDing h, Object target, Object[] args, MethodProxy mp) {
+        SqlSlowQueries slowQueries = SqlSlowQueries.getInstance();
+        if (!slowQueries.isEnabled()) {
+            return delegate.invoke(h, target, args, mp);
+        }
+
+        long start = System.nanoTime();
+        Object result = null;
+        boolean error = true;
+        try {
+            result = delegate.invoke(h, target, args, mp);
+            error = false;
+            return result;
+        } finally {
+            long nanos = System.nanoTime() - start;
+            if (slowQueries.isSlow(nanos)) {
+                SqlSlowQuery query = slowQueries.record(component, method, sql, parameterNames, redacted, args,
+                        error ? -1 : rowsOf(result), nanos, error);
+                if (explainer != null && h instanceof OnDemandHandleDing) {
+                    slowQueries.explain(query, explanation(h, args));
+                }
+            }
+        }
+    }
+
+    private Callable<String> explanation(final HandleDing h, final Object[] args) {
+        return new Callable<String>() {
+            @Override
+            public String call() {
+                return (String) explainer.invoke(h, null, args, null);
+            }
+        };
+    }
+
+    private static long rowsOf(Object result) {
+        if (result == null || result instanceof Iterator || result instanceof BaseStream) {
+            return -1;
+        }
+        if (result instanceof Collection) {
+            return ((Collection<?>) result).size();
+        }
+        if (result instanceof Number) {
+            // update count
+            return ((Number) result).longValue();
+        }
+        if (result instanceof int[]) {
+            long rows = 0;
+            for (int count : (int[]) result) {
+                rows += count;
+            }
+            return rows;
+        }
+        return 1;
+    }
+
+    /**
+     * Runs {@code EXPLAIN} on the statement of a method, bound like the method binds it, and returns the plan.
+     *
+     * The query is not tied to the method, so it is neither counted nor cached as one of its statements.
+     */
+    private static class ExplainHandler extends CustomizingStatementHandler {
+        private final String sql;
+
+        ExplainHandler(Class<?> sqlObjectType, ResolvedMethod method, String sql) {
+            super(sqlObjectType, method);
+            this.sql = sql;
+        }
+
+        @Override
+        public Object invoke(HandleDing h, Object target, Object[] args, MethodProxy mp) {
+            h.retain(EXPLAIN_RETENTION);
+            try {
+                Query<Map<String, Object>> query = h.getHandle().createQuery("EXPLAIN " + sql);
+                applyCustomizers(query, args);
+                applyBinders(query, args);
+                StringBuilder plan = new StringBuilder();
+                for (Map<String, Object> row : query.list()) {
+                    String separator = "";
+                    for (Object value : row.values()) {
+                        plan.append(separator).append(value);
+                        separator = " | ";
+                    }
+                    plan.append('\n');
+                }
+                return plan.toString();
+            } finally {
+                h.release(EXPLAIN_RETENTION);
+            }
+        }
+    }
+}
@@ -0,0 +1,846 @@
+package org.skife.jdbi.v2.sqlobject;
+
+import com.google.common.base.Throwables;
+import org.skife.jdbi.cglib.proxy.MethodProxy;
+import org.skife.jdbi.v2.Handle;
+import org.skife.jdbi.v2.TransactionCallback;
+import org.skife.jdbi.v2.TransactionIsolationLevel;
+import org.skife.jdbi.v2.TransactionStatus;
+import org.skife.jdbi.v2.exceptions.TransactionException;
+import org.skife.jdbi.v2.sqlobject.customizers.OverrideStatementLocatorWith;
+import org.skife.jdbi.v2.sqlobject.stringtemplate.ExternalizedSqlViaStringTemplate3;
+import org.skife.jdbi.v2.sqlobject.stringtemplate.UseStringTemplate3StatementLocator;
+import restx.factory.SqlComponent;
+import restx.sql.BatchedUpdates;
+import restx.sql.AllShards;
+import restx.sql.Bulkhead;
+import restx.sql.CachedQuery;
+import restx.sql.KeysetPage;
+import restx.sql.ReadReplica;
+import restx.sql.ShardKey;
+import restx.sql.SqlAsyncExecutor;
+import restx.sql.SqlBulkhead;
+import restx.sql.SqlBulkheads;
+import restx.sql.SqlComponentProfile;
+import restx.sql.SqlCopyIn;
+import restx.sql.SqlCopyOut;
+import restx.sql.SqlMethodMetrics;
+import restx.sql.SqlMetrics;
+import restx.sql.SqlStartupProfile;
+import restx.sql.SqlStatements;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.BiConsumer;
+import java.util.stream.BaseStream;
+
+/**
+ * Handler table used by the sql objects generated at compile time by the SqlComponentAnnotationProcessor.
+ *
+ * Each generated class declares its methods once, in a static field, and calls them by index:
+ * handlers are resolved when the generated class is initialized, so no proxy class is built at runtime
+ * and no lookup by {@link Method} is done on each call.
+ */
+public final class SqlObjectMethods {
+
+    private final Class<?> sqlObjectType;
+    private final Method[] methods;
+    private final Handler[] handlers;
+    private final String[] names;
+    private final TransactionIsolationLevel[] isolations;
+    private final TransactionRetry[] retries;
+    private final Map<Method, Integer> indexes;
+    private final SqlMethodMetrics[] metrics;
+    private final boolean[] queries;
+    private final boolean[] reads;
+    private final boolean[] batchable;
+    private final boolean[] batching;
+    private final boolean[] async;
+    private final CachingQueryHandler[] caches;
+    private final SqlBulkhead[] bulkheads;
+    private final boolean sharded;
+    private final int[] shardKeys;
+    private final ShardMerge[] merges;
+    private final boolean[] transactional;
+
+    private SqlObjectMethods(Class<?> sqlObjectType, Method[] methods) {
+        this.sqlObjectType = sqlObjectType;
+        this.methods = methods;
+        this.handlers = new Handler[methods.length];
+        this.names = new String[methods.length];
+        this.isolations = new TransactionIsolationLevel[methods.length];
+        this.retries = new TransactionRetry[methods.length];
+        this.indexes = new HashMap<Method, Integer>(methods.length * 2);
+        this.metrics = new SqlMethodMetrics[methods.length];
+        this.queries = new boolean[methods.length];
+        this.reads = new boolean[methods.length];
+        this.batchable = new boolean[methods.length];
+        this.batching = new boolean[methods.length];
+        this.async = new boolean[methods.length];
+        this.caches = new CachingQueryHandler[methods.length];
+        this.bulkheads = new SqlBulkhead[methods.length];
+        SqlComponent component = sqlObjectType.getAnnotation(SqlComponent.class);
+        this.sharded = component != null && component.sharded();
+        this.shardKeys = new int[methods.length];
+        this.merges = new ShardMerge[methods.length];
+        this.transactional = new boolean[methods.length];
+
+        Map<Method, Handler> handlersByMethod = SqlObjectUtils.buildHandlersFor(sqlObjectType);
+        long start = System.nanoTime();
+        for (int i = 0; i < methods.length; i++) {
+            Method method = methods[i];
+            indexes.put(method, i);
+            handlers[i] = handlersByMethod.get(method);
+            if (handlers[i] == null) {
+                throw new IllegalStateException("no handler found for " + method + " on " + sqlObjectType.getName());
+            }
+            names[i] = method.toString();
+            Transaction transaction = method.getAnnotation(Transaction.class);
+            isolations[i] = transaction == null ? TransactionIsolationLevel.INVALID_LEVEL : transaction.value();
+            retries[i] = TransactionRetry.of(sqlObjectType, method);
+            queries[i] = method.isAnnotationPresent(SqlQuery.class);
+            batchable[i] = BatchingUpdateHandler.isBatchable(method);
+            batching[i] = method.isAnnotationPresent(BatchedUpdates.class);
+            async[i] = handlers[i] instanceof AsyncHandler;
+            if (handlers[i] instanceof CachingQueryHandler) {
+                caches[i] = (CachingQueryHandler) handlers[i];
+            }
+            ReadReplica readReplica = method.getAnnotation(ReadReplica.class);
+            if (caches[i] != null && readReplica != null && readReplica.value()) {
+                // a lagging replica could load rows older than the last invalidation, cached until they expire
+                throw new IllegalStateException(
+                        "@CachedQuery method " + method + " can not be run on a read replica");
+            }
+            reads[i] = caches[i] == null && (readReplica == null ? queries[i] : readReplica.value());
+            if (queries[i] || transaction != null
+                    || method.isAnnotationPresent(SqlUpdate.class)
+                    || method.isAnnotationPresent(SqlBatch.class)
+                    || method.isAnnotationPresent(SqlCall.class)
+                    || method.isAnnotationPresent(SqlCopyIn.class)
+                    || method.isAnnotationPresent(SqlCopyOut.class)) {
+                metrics[i] = SqlMetrics.getInstance().register(sqlObjectType, metricName(method));
+            }
+            registerStatement(sqlObjectType, method);
+            bulkheads[i] = bulkheadOf(sqlObjectType, method);
+            transactional[i] = transaction != null;
+            shardKeys[i] = shardKeyOf(method, sharded);
+            if (sharded && shardKeys[i] < 0) {
+                merges[i] = mergeOf(method, async[i]);
+            }
+        }
+        SqlStartupProfile.getInstance().of(sqlObjectType)
+                .record(SqlComponentProfile.Stage.METHODS, System.nanoTime() - start);
+    }
+
+    /**
+     * @return the bulkhead limiting the calls of the given SQL statement or transaction method, null if they are
+     * not limited
+     */
+    private static SqlBulkhead bulkheadOf(Class<?> sqlObjectType, Method method) {
+        if (sqlOf(method) == null && !method.isAnnotationPresent(Transaction.class)
+                && !method.isAnnotationPresent(SqlCopyIn.class) && !method.isAnnotationPresent(SqlCopyOut.class)) {
+            return null;
+        }
+        Bulkhead bulkhead = method.getAnnotation(Bulkhead.class);
+        if (bulkhead != null) {
+            return SqlBulkheads.getInstance().register(sqlObjectType,
+                    sqlObjectType.getName() + "#" + metricName(method),
+                    bulkhead.maxConcurrentCalls(), bulkhead.queueTimeout());
+        }
+        SqlComponent component = sqlObjectType.getAnnotation(SqlComponent.class);
+        if (component != null && component.maxConcurrentCalls() > 0) {
+            return SqlBulkheads.getInstance().register(sqlObjectType, sqlObjectType.getName(),
+                    component.maxConcurrentCalls(), component.queueTimeout());
+        }
+        return null;
+    }
+
+    /**
+     * @return the index of the {@link ShardKey} argument of the given method, -1 if it has none
+     */
+    private static int shardKeyOf(Method method, boolean sharded) {
+        int shardKey = -1;
+        Annotation[][] parameterAnnotations = method.getParameterAnnotations();
+        for (int i = 0; i < parameterAnnotations.length; i++) {
+            for (Annotation annotation : parameterAnnotations[i]) {
+                if (annotation instanceof ShardKey) {
+                    if (shardKey >= 0) {
+                        throw new IllegalStateException("more than one @ShardKey argument on " + method);
+                    }
+                    shardKey = i;
+                }
+            }
+        }
+        if (shardKey >= 0 && !sharded) {
+            throw new IllegalStateException("@ShardKey on " + method
+                    + " of a component which is not @SqlComponent(sharded = true)");
+        }
+        return shardKey;
+    }
+
+    /**
+     * @return how the results of the given method of a sharded component without shard key are merged,
+     * null if it is not a SQL statement method and runs with the handle of the component
+     */
+    private static ShardMerge mergeOf(Method method, boolean async) {
+        if (method.isAnnotationPresent(Transaction.class)) {
+            throw new IllegalStateException("@Transaction method " + method
+                    + " of a sharded component needs a @ShardKey argument");
+        }
+        boolean copy = method.isAnnotationPresent(SqlCopyIn.class) || method.isAnnotationPresent(SqlCopyOut.class);
+        if (sqlOf(method) == null && !copy) {
+            return null;
+        }
+        if (copy || async || method.isAnnotationPresent(SqlBatch.class)
+                || method.isAnnotationPresent(CachedQuery.class)) {
+            throw new IllegalStateException("SQL method " + method
+                    + " of a sharded component can't run on all the shards, it needs a @ShardKey argument");
+        }
+        return ShardMerge.of(method);
+    }
+
+    /**
+     * @return the SQL declared by the given method, null if it is not a SQL statement method
+     */
+    static String sqlOf(Method method) {
+        if (method.isAnnotationPresent(SqlQuery.class)) {
+            return SqlObject.getSql(method.getAnnotation(SqlQuery.class), method);
+        } else if (method.isAnnotationPresent(SqlUpdate.class)) {
+            return SqlObject.getSql(method.getAnnotation(SqlUpdate.class), method);
+        } else if (method.isAnnotationPresent(SqlBatch.class)) {
+            return SqlObject.getSql(method.getAnnotation(SqlBatch.class), method);
+        } else if (method.isAnnotationPresent(SqlCall.class)) {
+            return SqlObject.getSql(method.getAnnotation(SqlCall.class), method);
+        }
+        return null;
+    }
+
+    private static void registerStatement(Class<?> sqlObjectType, Method method) {
+        String sql = sqlOf(method);
+        if (sql == null) {
+            return;
+        }
+        // the SQL of components with their own statement locator is only known at runtime
+        boolean located = sqlObjectType.isAnnotationPresent(OverrideStatementLocatorWith.class)
+                || sqlObjectType.isAnnotationPresent(UseStringTemplate3StatementLocator.class)
+                || sqlObjectType.isAnnotationPresent(ExternalizedSqlViaStringTemplate3.class);
+        SqlStatements.getInstance().register(method, sqlObjectType.getName(), metricName(method),
+                located ? null : sql, method.isAnnotationPresent(SqlCall.class));
+    }
+
+    /**
+     * @return the name of the method with the qualified names of its parameter types, which tells its overloads
+     * apart, e.g. the ones taking a java.util.Date and a java.sql.Date
+     */
+    static String metricName(Method method) {
+        StringBuilder name = new StringBuilder(method.getName()).append('(');
+        Class<?>[] parameterTypes = method.getParameterTypes();
+        for (int i = 0; i < parameterTypes.length; i++) {
+            String typeName = parameterTypes[i].getCanonicalName();
+            name.append(i == 0 ? "" : ", ").append(typeName == null ? parameterTypes[i].getName() : typeName);
+        }
+        return name.append(')').toString();
+    }
+
+    public static SqlObjectMethods of(Class<?> sqlObjectType, Method... methods) {
+        return new SqlObjectMethods(sqlObjectType, methods);
+    }
+
+    /**
+     * Builds the table of every method having a handler, used to dispatch the calls of the cglib proxies built by
+     * {@link SqlObjectUtils#buildSqlObject}.
+     */
+    static SqlObjectMethods forProxy(Class<?> sqlObjectType) {
+        Set<Method> methods = SqlObjectUtils.buildHandlersFor(sqlObjectType).keySet();
+        return new SqlObjectMethods(sqlObjectType, methods.toArray(new Method[methods.size()]));
+    }
+
+    /**
+     * Finds the method declared by the given class, whatever its visibility.
+     */
+    public static Method method(Class<?> declaringClass, String name, Class<?>... parameterTypes) {
+        try {
+            return declaringClass.getDeclaredMethod(name, parameterTypes);
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException("method " + name + Arrays.toString(parameterTypes)
+                    + " not found on " + declaringClass.getName(), e);
+        }
+    }
+
+    public Class<?> getSqlObjectType() {
+        return sqlObjectType;
+    }
+
+    public int size() {
+        return methods.length;
+    }
+
+    /**
+     * @return true if the method at the given index is a {@link Transaction} method, to run with
+     * {@link #inTransaction(PublicOnDemandHandleDing, int, Object[], Callable)}
+     */
+    boolean isTransaction(int index) {
+        return transactional[index];
+    }
+
+    /**
+     * @return the index of the given method, or -1 if it has no handler
+     */
+    int indexOf(Method method) {
+        Integer index = indexes.get(method);
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * Invokes the handler of the method at the given index, retaining the handle for the duration of the call.
+     *
+     * Results cached by a {@link CachedQuery} method are returned without retaining the handle.
+     * Reads are run on a replica when the ding has some, see {@link PublicOnDemandHandleDing#forRead()}.
+     * Calls limited by a bulkhead take a permit before the handle, unless the thread already holds it, see
+     * {@link Bulkhead}.
+     * Calls of sharded components run on the shard of their key, or on all the shards, see {@link ShardKey}.
+     * Asynchronous calls run with another handle, so they are rejected inside a transaction.
+     */
+    public Object invoke(PublicOnDemandHandleDing ding, int index, Object target, Object[] args) {
+        return invoke(ding, index, target, args, null);
+    }
+
+    Object invoke(HandleDing ding, int index, Object target, Object[] args, MethodProxy mp) {
+        if (!batchable[index]) {
+            // buffered updates must be run before any other statement
+            UpdateBatch.flushCurrent();
+        }
+        if (sharded && (shardKeys[index] >= 0 || merges[index] != null)) {
+            return invokeSharded(shardedDing(ding), index, target, args, mp);
+        }
+        return invokeOn(ding, index, target, args, mp);
+    }
+
+    private Object invokeOn(HandleDing ding, int index, Object target, Object[] args, MethodProxy mp) {
+        if (caches[index] != null) {
+            // hits take neither a permit nor a handle
+            long start = System.nanoTime();
+            Object cached = caches[index].lookup(ding, args);
+            if (cached != CachingQueryHandler.MISS) {
+                SqlMethodMetrics methodMetrics = metrics[index];
+                if (methodMetrics != null && SqlMetrics.getInstance().isEnabled()) {
+                    methodMetrics.record(System.nanoTime() - start, 0, rowsOf(cached), false);
+                }
+                return cached;
+            }
+        }
+        Executor executor = async[index] ? asyncExecutor(ding, index) : null;
+        SqlBulkhead bulkhead = limiting(ding, index);
+        if (reads[index] && ding instanceof PublicOnDemandHandleDing) {
+            ding = ((PublicOnDemandHandleDing) ding).forRead();
+        }
+        if (bulkhead == null) {
+            return async[index]
+                    ? invokeAsync(ding, executor, index, target, args, mp)
+                    : invokeSync(ding, index, target, args, mp);
+        }
+
+        bulkhead.acquire();
+        boolean released = false;
+        try {
+            if (async[index]) {
+                CompletableFuture<?> future =
+                        (CompletableFuture<?>) invokeAsync(ding, executor, index, target, args, mp);
+                future.whenComplete(release(bulkhead));
+                released = true;
+                return future;
+            }
+            return invokeSync(ding, index, target, args, mp);
+        } finally {
+            if (!released) {
+                bulkhead.release();
+            }
+        }
+    }
+
+    /**
+     * @return the executor of the asynchronous call, null if the ding has none
+     * @throws IllegalStateException if the current thread runs a transaction, which the call would not be part of
+     */
+    private Executor asyncExecutor(HandleDing ding, int index) {
+        if (!(ding instanceof PublicOnDemandHandleDing)) {
+            return null;
+        }
+        PublicOnDemandHandleDing publicDing = (PublicOnDemandHandleDing) ding;
+        if (publicDing.inTransaction()) {
+            throw new IllegalStateException("asynchronous " + names[index] + " can't be called inside a transaction,"
+                    + " it would run on another connection");
+        }
+        return publicDing.asyncExecutor();
+    }
+
+    /**
+     * @return the bulkhead the call must take a permit of, null if it has none or runs with the handle already
+     * held by the current thread, which it would keep while waiting
+     */
+    private SqlBulkhead limiting(HandleDing ding, int index) {
+        SqlBulkhead bulkhead = bulkheads[index];
+        if (bulkhead != null && !async[index]
+                && ding instanceof PublicOnDemandHandleDing && ((PublicOnDemandHandleDing) ding).holdsHandle()) {
+            return null;
+        }
+        return bulkhead;
+    }
+
+    private PublicOnDemandHandleDing shardedDing(HandleDing ding) {
+        if (!(ding instanceof PublicOnDemandHandleDing)) {
+            throw new IllegalStateException("sharded component " + sqlObjectType.getName()
+                    + " must be called with a PublicOnDemandHandleDing");
+        }
+        return (PublicOnDemandHandleDing) ding;
+    }
+
+    private Object invokeSharded(PublicOnDemandHandleDing ding, int index, Object target, Object[] args,
+                                 MethodProxy mp) {
+        PublicOnDemandHandleDing shard = ding.pinnedShard();
+        if (shard != null) {
+            return invokeOn(checkPinned(ding, shard, index, args), index, target, args, mp);
+        }
+        if (shardKeys[index] < 0) {
+            return scatter(ding.asyncExecutor(), ding.shards(), index, target, args, mp);
+        }
+
+        shard = ding.shardFor(args[shardKeys[index]]);
+        if (!transactional[index]) {
+            return invokeOn(shard, index, target, args, mp);
+        }
+        // the calls made by the transaction run on its shard, their keys must belong to it
+        ding.pinShard(shard);
+        try {
+            return invokeOn(shard, index, target, args, mp);
+        } finally {
+            ding.unpinShard();
+        }
+    }
+
+    /**
+     * @return the shard of the transaction run by the current thread, if the call belongs to it
+     * @throws IllegalStateException if the key of the call belongs to another shard, or the call has no key
+     */
+    private PublicOnDemandHandleDing checkPinned(PublicOnDemandHandleDing ding, PublicOnDemandHandleDing pinned,
+                                                 int index, Object[] args) {
+        if (shardKeys[index] < 0) {
+            throw new IllegalStateException(names[index]
+                    + " can't run on all the shards inside a transaction, which runs on a single shard");
+        }
+        Object key = args[shardKeys[index]];
+        if (ding.shardFor(key) != pinned) {
+            throw new IllegalStateException("shard key " + key + " of " + names[index]
+                    + " belongs to another shard than the one of the transaction running it");
+        }
+        return pinned;
+    }
+
+    /**
+     * Runs the method on all the shards concurrently, each call with the handle of its thread, and merges the
+     * results in the order of the shards.
+     *
+     * The first shard is called by the current thread, which then runs the calls not started yet by the
+     * {@link SqlAsyncExecutor} of the ding, so a saturated executor, or none, only makes the calls sequential.
+     */
+    private Object scatter(Executor executor, List<PublicOnDemandHandleDing> shards, final int index,
+                           final Object target, final Object[] args, final MethodProxy mp) {
+        List<FutureTask<Object>> tasks = new ArrayList<FutureTask<Object>>(shards.size() - 1);
+        try {
+            for (final PublicOnDemandHandleDing shard : shards.subList(1, shards.size())) {
+                FutureTask<Object> task = new FutureTask<Object>(new Callable<Object>() {
+                    @Override
+                    public Object call() {
+                        return invokeOn(shard, index, target, args, mp);
+                    }
+                });
+                tasks.add(task);
+                if (executor != null) {
+                    try {
+                        executor.execute(task);
+                    } catch (RejectedExecutionException e) {
+                        // run below by the current thread
+                    }
+                }
+            }
+
+            List<Object> results = new ArrayList<Object>(shards.size());
+            results.add(invokeOn(shards.get(0), index, target, args, mp));
+            for (FutureTask<Object> task : tasks) {
+                // does nothing if the executor has started the task
+                task.run();
+                results.add(resultOf(task));
+            }
+            return merges[index].merge(results);
+        } finally {
+            for (FutureTask<Object> task : tasks) {
+                task.cancel(false);
+            }
+        }
+    }
+
+    private static Object resultOf(FutureTask<Object> task) {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while waiting for the calls of the shards", e);
+        } catch (ExecutionException e) {
+            throw Throwables.propagate(e.getCause());
+        }
+    }
+
+    private static BiConsumer<Object, Throwable> release(final SqlBulkhead bulkhead) {
+        return new BiConsumer<Object, Throwable>() {
+            @Override
+            public void accept(Object result, Throwable error) {
+                bulkhead.release();
+            }
+        };
+    }
+
+    private Object invokeSync(HandleDing ding, int index, Object target, Object[] args, MethodProxy mp) {
+        String name = names[index];
+        SqlMethodMetrics methodMetrics = metrics[index];
+        if (methodMetrics == null || !SqlMetrics.getInstance().isEnabled()) {
+            ding.retain(name);
+            try {
+                return handlers[index].invoke(ding, target, args, mp);
+            } finally {
+                ding.release(name);
+            }
+        }
+
+        long start = System.nanoTime();
+        // retaining opens the handle when none is held by the current thread
+        ding.retain(name);
+        long acquired = System.nanoTime();
+        long rows = 0;
+        boolean error = true;
+        try {
+            Object result = handlers[index].invoke(ding, target, args, mp);
+            if (queries[index]) {
+                rows = rowsOf(result);
+            }
+            error = false;
+            return result;
+        } finally {
+            ding.release(name);
+            methodMetrics.record(System.nanoTime() - start, acquired - start, rows, error);
+        }
+    }
+
+    /**
+     * Async handlers retain the handle of the executor thread themselves, the call is recorded once completed.
+     */
+    private Object invokeAsync(HandleDing ding, Executor executor, final int index, Object target, Object[] args,
+                               MethodProxy mp) {
+        final SqlMethodMetrics methodMetrics = metrics[index];
+        final long start = System.nanoTime();
+        CompletableFuture<?> future = (CompletableFuture<?>) ((AsyncHandler) handlers[index])
+                .invoke(ding, executor, target, args, mp);
+        if (methodMetrics != null && SqlMetrics.getInstance().isEnabled()) {
+            future.whenComplete(new BiConsumer<Object, Throwable>() {
+                @Override
+                public void accept(Object result, Throwable error) {
+                    methodMetrics.record(System.nanoTime() - start, 0,
+                            queries[index] && error == null ? rowsOf(result) : 0, error != null);
+                }
+            });
+        }
+        return future;
+    }
+
+    private static long rowsOf(Object result) {
+        if (result == null || result instanceof Iterator || result instanceof BaseStream) {
+            // iterators and streams are consumed after the call, their rows are not known here
+            return 0;
+        }
+        if (result instanceof Collection) {
+            return ((Collection<?>) result).size();
+        }
+        if (result instanceof KeysetPage) {
+            return ((KeysetPage<?>) result).getRows().size();
+        }
+        return 1;
+    }
+
+    /**
+     * Runs the body of a {@link Transaction} method of a sharded component on the shard of its key, along with
+     * all the calls it makes; runs it like {@link #inTransaction(PublicOnDemandHandleDing, int, Callable)} otherwise.
+     */
+    public <T> T inTransaction(PublicOnDemandHandleDing ding, int index, Object[] args, Callable<T> body) {
+        if (!sharded) {
+            return inTransaction(ding, index, body);
+        }
+        PublicOnDemandHandleDing shard = ding.pinnedShard();
+        if (shard != null) {
+            return inTransaction(checkPinned(ding, shard, index, args), index, body);
+        }
+        shard = ding.shardFor(args[shardKeys[index]]);
+        ding.pinShard(shard);
+        try {
+            return inTransaction(shard, index, body);
+        } finally {
+            ding.unpinShard();
+        }
+    }
+
+    /**
+     * Runs the body of a {@link Transaction} method inside a transaction, nested transactions are not supported.
+     *
+     * The transaction is run again on the failures retried by its {@link restx.sql.RetryTransaction} policy.
+     */
+    public <T> T inTransaction(PublicOnDemandHandleDing ding, int index, final Callable<T> body) {
+        SqlMethodMetrics methodMetrics = metrics[index];
+        if (!SqlMetrics.getInstance().isEnabled()) {
+            return runTransaction(ding, index, body);
+        }
+
+        long start = System.nanoTime();
+        boolean error = true;
+        try {
+            T result = runTransaction(ding, index, body);
+            error = false;
+            return result;
+        } finally {
+            methodMetrics.record(System.nanoTime() - start, 0, 0, error);
+        }
+    }
+
+    /**
+     * Runs the attempts of the transaction, each one with the handle retained and the permit of its bulkhead, if
+     * limited by one, so the calls it makes take none.
+     *
+     * Both are given back while waiting for the next attempt: the handle to the pool, unless the request shares it,
+     * and the permit to the other calls.
+     */
+    private <T> T runTransaction(PublicOnDemandHandleDing ding, final int index, final Callable<T> body) {
+        String name = names[index];
+        SqlBulkhead bulkhead = limiting(ding, index);
+        TransactionCallback<T> callback = new TransactionCallback<T>() {
+            @Override
+            public T inTransaction(Handle conn, TransactionStatus status) throws Exception {
+                return batching[index] ? UpdateBatch.run(body) : body.call();
+            }
+        };
+        for (int attempt = 1; ; attempt++) {
+            RuntimeException failure;
+            if (bulkhead != null) {
+                bulkhead.acquire();
+            }
+            try {
+                ding.retain(name);
+                try {
+                    Handle handle = ding.getHandle();
+                    if (handle.isInTransaction()) {
+                        throw new TransactionException(
+                                "Nested @Transaction detected - this is currently not supported.");
+                    }
+                    try {
+                        if (isolations[index] == TransactionIsolationLevel.INVALID_LEVEL) {
+                            return handle.inTransaction(callback);
+                        } else {
+                            return handle.inTransaction(isolations[index], callback);
+                        }
+                    } finally {
+                        QueryResultCaches.transactionEnded();
+                    }
+                } catch (RuntimeException e) {
+                    failure = e;
+                } finally {
+                    ding.release(name);
+                }
+            } finally {
+                if (bulkhead != null) {
+                    bulkhead.release();
+                }
+            }
+            long delay = retries[index] == null ? -1 : retries[index].delay(failure, attempt);
+            if (delay < 0 || !TransactionRetry.await(delay)) {
+                throw failure;
+            }
+            metrics[index].retried();
+        }
+    }
+
+    /**
+     * How the results of a SQL method run on all the shards are merged, from its return type and its
+     * {@link AllShards} declaration.
+     */
+    private enum ShardMerge {
+        NONE {
+            @Override
+            Object merge(List<Object> results) {
+                return null;
+            }
+        },
+        LIST {
+            @Override
+            Object merge(List<Object> results) {
+                return addAll(new ArrayList<Object>(), results);
+            }
+        },
+        SET {
+            @Override
+            Object merge(List<Object> results) {
+                return addAll(new LinkedHashSet<Object>(), results);
+            }
+        },
+        MIN {
+            @Override
+            Object merge(List<Object> results) {
+                return extremum(results, -1);
+            }
+        },
+        MAX {
+            @Override
+            Object merge(List<Object> results) {
+                return extremum(results, 1);
+            }
+        },
+        SUM {
+            @Override
+            Object merge(List<Object> results) {
+                long sum = 0;
+                for (Object result : results) {
+                    sum += result == null ? 0 : ((Number) result).longValue();
+                }
+                return results.get(0) instanceof Long ? (Object) sum : (Object) Math.toIntExact(sum);
+            }
+        },
+        ANY {
+            @Override
+            Object merge(List<Object> results) {
+                for (Object result : results) {
+                    if (Boolean.TRUE.equals(result)) {
+                        return true;
+                    }
+                }
+                return results.get(0);
+            }
+        },
+        FIRST {
+            @Override
+            Object merge(List<Object> results) {
+                for (Object result : results) {
+                    if (result != null && !isAbsent(result)) {
+                        return result;
+                    }
+                }
+                return results.get(0);
+            }
+        };
+
+        abstract Object merge(List<Object> results);
+
+        static ShardMerge of(Method method) {
+            Class<?> type = method.getReturnType();
+            if (type.isArray() || type == KeysetPage.class
+                    || Iterator.class.isAssignableFrom(type) || BaseStream.class.isAssignableFrom(type)) {
+                throw new IllegalStateException("the " + type.getSimpleName() + " results of " + method
+                        + " can't be merged from all the shards, it needs a @ShardKey argument");
+            }
+            boolean write = !method.isAnnotationPresent(SqlQuery.class);
+            ShardMerge collection = type == Object.class ? null
+                    : type.isAssignableFrom(List.class) ? LIST
+                    : type.isAssignableFrom(Set.class) ? SET
+                    : null;
+            AllShards allShards = method.getAnnotation(AllShards.class);
+            if (allShards == null) {
+                if (write) {
+                    throw new IllegalStateException("write " + method + " of a sharded component needs a @ShardKey"
+                            + " argument, or @AllShards to run on every shard, without atomicity");
+                }
+                if (collection == null) {
+                    throw new IllegalStateException("the " + type.getSimpleName() + " results of " + method
+                            + " can't be merged implicitly, it needs a @ShardKey argument or an @AllShards merge");
+                }
+                return collection;
+            }
+
+            boolean number = type == int.class || type == Integer.class || type == long.class || type == Long.class;
+            switch (allShards.value()) {
+                case AUTO:
+                    if (type == void.class) {
+                        return NONE;
+                    }
+                    if (collection != null) {
+                        return collection;
+                    }
+                    if (write && number) {
+                        return SUM;
+                    }
+                    break;
+                case SUM:
+                    if (number) {
+                        return SUM;
+                    }
+                    break;
+                case MIN:
+                case MAX:
+                    if (type.isPrimitive() && type != void.class && type != boolean.class
+                            || Comparable.class.isAssignableFrom(type)) {
+                        return allShards.value() == AllShards.Merge.MIN ? MIN : MAX;
+                    }
+                    break;
+                case ANY:
+                    if (type == boolean.class || type == Boolean.class) {
+                        return ANY;
+                    }
+                    break;
+                case FIRST:
+                    if (type != void.class && collection == null) {
+                        return FIRST;
+                    }
+                    break;
+                default:
+                    break;
+            }
+            throw new IllegalStateException("@AllShards(" + allShards.value() + ") can't merge the "
+                    + type.getSimpleName() + " results of " + method);
+        }
+
+        @SuppressWarnings("unchecked")
+        private static Object extremum(List<Object> results, int sign) {
+            Object extremum = null;
+            for (Object result : results) {
+                if (result != null && (extremum == null
+                        || sign * ((Comparable<Object>) result).compareTo(extremum) > 0)) {
+                    extremum = result;
+                }
+            }
+            return extremum;
+        }
+
+        private static Collection<Object> addAll(Collection<Object> merged, List<Object> results) {
+            for (Object result : results) {
+                if (result != null) {
+                    merged.addAll((Collection<?>) result);
+                }
+            }
+            return merged;
+        }
+
+        private static boolean isAbsent(Object result) {
+            return result instanceof java.util.Optional && !((java.util.Optional<?>) result).isPresent()
+                    || result instanceof com.google.common.base.Optional
+                    && !((com.google.common.base.Optional<?>) result).isPresent();
+        }
+    }
+}
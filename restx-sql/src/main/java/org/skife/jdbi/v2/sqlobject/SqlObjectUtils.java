@@ -1,5 +1,11 @@
 package org.skife.jdbi.v2.sqlobject;
 
+import com.google.common.base.Throwables;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.MapMaker;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import org.skife.jdbi.cglib.proxy.Callback;
 import org.skife.jdbi.cglib.proxy.CallbackFilter;
 import org.skife.jdbi.cglib.proxy.Enhancer;
@@ -12,120 +18,83 @@ import org.skife.jdbi.com.fasterxml.classmate.ResolvedType;
 import org.skife.jdbi.com.fasterxml.classmate.ResolvedTypeWithMembers;
 import org.skife.jdbi.com.fasterxml.classmate.TypeResolver;
 import org.skife.jdbi.com.fasterxml.classmate.members.ResolvedMethod;
+import restx.sql.BatchedUpdates;
+import restx.sql.CachedQuery;
+import restx.sql.SqlBulkheads;
+import restx.sql.SqlComponentProfile;
+import restx.sql.SqlCopyIn;
+import restx.sql.SqlCopyOut;
+import restx.sql.SqlMetrics;
+import restx.sql.SqlObjectCaches;
+import restx.sql.SqlSlowQueries;
+import restx.sql.SqlStartupProfile;
+import restx.sql.SqlStatements;
+import restx.sql.WritesTables;
 
-import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentMap;
+import java.util.stream.BaseStream;
 
 
 public class SqlObjectUtils {
 
-    private static final TypeResolver typeResolver  = new TypeResolver();
     private static final Map<Method, Handler> mixinHandlers = new HashMap<Method, Handler>();
-    private static final ConcurrentMap<Class<?>, Map<Method, Handler>>
-            handlersCache = new ConcurrentHashMap<Class<?>, Map<Method, Handler>>();
-    private static final ConcurrentMap<Class<?>, Factory>              factories     = new ConcurrentHashMap<Class<?>, Factory>();
-
-    private static Method jdk8DefaultMethod = null;
+    // caches of the sql object types of each class loader, see evict(ClassLoader)
+    private static final LoadingCache<ClassLoader, LoaderCaches> loaderCaches = CacheBuilder.newBuilder()
+            .weakKeys()
+            .build(new CacheLoader<ClassLoader, LoaderCaches>() {
+                @Override
+                public LoaderCaches load(ClassLoader classLoader) {
+                    SqlObjectCaches.getInstance().classLoaderAdded();
+                    return new LoaderCaches();
+                }
+            });
 
     static {
         mixinHandlers.putAll(TransactionalHelper.handlers());
         mixinHandlers.putAll(GetHandleHelper.handlers());
         mixinHandlers.putAll(TransmogrifierHelper.handlers());
-
-        try {
-            SqlObjectUtils.jdk8DefaultMethod = Method.class.getMethod("isDefault");
-        }
-        catch (NoSuchMethodException e) {
-            // fallthrough, expected on e.g. JDK7
-        }
     }
 
+    /**
+     * Builds a cglib proxy of the given sql object type, for the components which are not generated at compile time.
+     *
+     * Its calls are run by the same {@link SqlObjectMethods} as the ones of the generated sql objects.
+     */
     @SuppressWarnings("unchecked")
-    public static <T> T buildSqlObject(final Class<T> sqlObjectType, final HandleDing handle,
+    public static <T> T buildSqlObject(final Class<T> sqlObjectType, final PublicOnDemandHandleDing handle,
                                 Class[] constructorArgumentTypes, Object[] constructorArguments)
     {
-        Factory f;
-        if (factories.containsKey(sqlObjectType)) {
-            f = factories.get(sqlObjectType);
-        }
-        else {
-            Enhancer e = new Enhancer();
-            e.setClassLoader(sqlObjectType.getClassLoader());
-
-            List<Class> interfaces = new ArrayList<Class>();
-            interfaces.add(CloseInternalDoNotUseThisClass.class);
-            if (sqlObjectType.isInterface()) {
-                interfaces.add(sqlObjectType);
-            }
-            else {
-                e.setSuperclass(sqlObjectType);
-            }
-            e.setInterfaces(interfaces.toArray(new Class[interfaces.size()]));
-            final SqlObject so = new SqlObject(buildHandlersFor(sqlObjectType), handle);
-
-            e.setCallbackFilter(new CallbackFilter() {
-
-                @Override
-                public int accept(Method method) {
-                    if (jdk8DefaultMethod == null) {
-                        return 0;
-                    }
-                    else {
-                        try {
-                            Boolean result = (Boolean) jdk8DefaultMethod.invoke(method);
-                            return Boolean.TRUE.equals(result) ? 1 : 0;
-                        } catch (IllegalArgumentException e) {
-                            return 0;
-                        } catch (IllegalAccessException e) {
-                            return 0;
-                        } catch (InvocationTargetException e) {
-                            return 0;
-                        }
-                    }
-                }
-
-            });
+        LoaderCaches caches = cachesOf(sqlObjectType);
+        Callback[] callbacks = {
+                new MethodsInterceptor(getUnchecked(caches.methodsCache, sqlObjectType), handle),
+                NoOp.INSTANCE
+        };
 
-            e.setCallbacks(new Callback[] {
-                    new MethodInterceptor() {
-                        @Override
-                        public Object intercept(Object o, Method method, Object[] objects, MethodProxy methodProxy) throws Throwable {
-                            return so.invoke(o, method, objects, methodProxy);
-                        }
-                    },
-                    NoOp.INSTANCE
-            });
+        Factory f = caches.factories.get(sqlObjectType);
+        if (f == null) {
+            Enhancer e = createEnhancer(sqlObjectType);
+            e.setCallbacks(callbacks);
             T t;
             if (constructorArgumentTypes.length > 0) {
                 t = (T) e.create(constructorArgumentTypes, constructorArguments);
             } else {
                 t = (T) e.create();
             }
-            T actual = (T) factories.putIfAbsent(sqlObjectType, (Factory) t);
+            Factory actual = caches.factories.putIfAbsent(sqlObjectType, (Factory) t);
             if (actual == null) {
+                SqlObjectCaches.getInstance().proxyClassAdded();
                 return t;
             }
-            f = (Factory) actual;
+            f = actual;
         }
 
-        final SqlObject so = new SqlObject(buildHandlersFor(sqlObjectType), handle);
-        Callback[] callbacks = {
-                new MethodInterceptor() {
-                    @Override
-                    public Object intercept(Object o, Method method, Object[] objects, MethodProxy methodProxy)
-                            throws Throwable {
-                        return so.invoke(o, method, objects, methodProxy);
-                    }
-                },
-                NoOp.INSTANCE
-        };
-
         Object instance;
         if (constructorArgumentTypes.length > 0) {
             instance = f.newInstance(constructorArgumentTypes, constructorArguments, callbacks);
@@ -135,30 +104,170 @@ public class SqlObjectUtils {
         return (T) instance;
     }
 
-    private static Map<Method, Handler> buildHandlersFor(Class<?> sqlObjectType)
-    {
-        if (handlersCache.containsKey(sqlObjectType)) {
-            return handlersCache.get(sqlObjectType);
+    /**
+     * Drops the handlers and proxy classes cached for the classes of the given class loader and its descendants,
+     * along with their query caches, metrics, bulkheads, slow queries and startup profiles, so they can be collected.
+     *
+     * The generated sql objects share them through static fields, so this must only be called once no factory
+     * uses the class loader anymore, see restx.factory.SqlObjectCachesMachine.
+     *
+     * Nothing is dropped for the class loader of restx-sql or its ancestors, which can't be collected before it.
+     */
+    public static void evict(ClassLoader classLoader) {
+        if (SqlObjectCaches.isDescendant(SqlObjectUtils.class.getClassLoader(), classLoader)) {
+            return;
         }
+        for (ClassLoader cached : loaderCaches.asMap().keySet()) {
+            if (SqlObjectCaches.isDescendant(cached, classLoader)) {
+                LoaderCaches caches = loaderCaches.asMap().remove(cached);
+                if (caches != null) {
+                    caches.evicted();
+                }
+            }
+        }
+        SqlStatements.getInstance().evict(classLoader);
+        QueryResultCaches.evict(classLoader);
+        SqlMetrics.getInstance().evict(classLoader);
+        SqlBulkheads.getInstance().evict(classLoader);
+        SqlSlowQueries.getInstance().evict(classLoader);
+        SqlStartupProfile.getInstance().evict(classLoader);
+    }
+
+    private static LoaderCaches cachesOf(Class<?> sqlObjectType) {
+        ClassLoader classLoader = sqlObjectType.getClassLoader();
+        return loaderCaches.getUnchecked(classLoader == null ? SqlObjectUtils.class.getClassLoader() : classLoader);
+    }
 
+    private static Enhancer createEnhancer(Class<?> sqlObjectType) {
+        Enhancer e = new Enhancer();
+        e.setClassLoader(sqlObjectType.getClassLoader());
+        // the class is cached by the caches of its class loader, the cache of cglib would keep the loader forever
+        e.setUseCache(false);
+
+        List<Class> interfaces = new ArrayList<Class>();
+        interfaces.add(CloseInternalDoNotUseThisClass.class);
+        if (sqlObjectType.isInterface()) {
+            interfaces.add(sqlObjectType);
+        }
+        else {
+            e.setSuperclass(sqlObjectType);
+        }
+        e.setInterfaces(interfaces.toArray(new Class[interfaces.size()]));
+
+        e.setCallbackFilter(new CallbackFilter() {
+
+            @Override
+            public int accept(Method method) {
+                return method.isDefault() ? 1 : 0;
+            }
+
+        });
+        return e;
+    }
+
+    private static <V> V getUnchecked(LoadingCache<Class<?>, V> cache, Class<?> sqlObjectType) {
+        try {
+            return cache.getUnchecked(sqlObjectType);
+        } catch (UncheckedExecutionException e) {
+            throw Throwables.propagate(e.getCause());
+        }
+    }
+
+    /**
+     * Runs the calls of a proxy with the {@link SqlObjectMethods} of its type, like the generated sql objects.
+     */
+    private static class MethodsInterceptor implements MethodInterceptor {
+        private final SqlObjectMethods methods;
+        private final PublicOnDemandHandleDing handle;
+
+        private MethodsInterceptor(SqlObjectMethods methods, PublicOnDemandHandleDing handle) {
+            this.methods = methods;
+            this.handle = handle;
+        }
+
+        @Override
+        public Object intercept(final Object o, Method method, final Object[] args, final MethodProxy methodProxy)
+                throws Throwable {
+            int index = methods.indexOf(method);
+            if (index < 0) {
+                return methodProxy.invokeSuper(o, args);
+            }
+            if (!methods.isTransaction(index)) {
+                return methods.invoke(handle, index, o, args, methodProxy);
+            }
+            return methods.inTransaction(handle, index, args, new Callable<Object>() {
+                @Override
+                public Object call() throws Exception {
+                    try {
+                        return methodProxy.invokeSuper(o, args);
+                    } catch (Throwable t) {
+                        Throwables.propagateIfPossible(t, Exception.class);
+                        throw new RuntimeException(t);
+                    }
+                }
+            });
+        }
+    }
+
+    static Map<Method, Handler> buildHandlersFor(Class<?> sqlObjectType)
+    {
+        return getUnchecked(cachesOf(sqlObjectType).handlersCache, sqlObjectType);
+    }
+
+    private static Map<Method, Handler> resolveHandlers(Class<?> sqlObjectType, TypeResolver typeResolver)
+    {
+        final SqlComponentProfile profile = SqlStartupProfile.getInstance().of(sqlObjectType);
+        long start = System.nanoTime();
         final MemberResolver mr = new MemberResolver(typeResolver);
         final ResolvedType sql_object_type = typeResolver.resolve(sqlObjectType);
 
         final ResolvedTypeWithMembers d = mr.resolve(sql_object_type, null, null);
+        profile.record(SqlComponentProfile.Stage.RESOLVE, System.nanoTime() - start);
 
         final Map<Method, Handler> handlers = new HashMap<Method, Handler>();
+        final Map<Method, ResolvedMethod> resolvedMethods = new HashMap<Method, ResolvedMethod>();
         for (final ResolvedMethod method : d.getMemberMethods()) {
             final Method raw_method = method.getRawMember();
+            resolvedMethods.put(raw_method, method);
+            long handlerStart = System.nanoTime();
+
+            if (raw_method.isAnnotationPresent(BatchedUpdates.class) && !raw_method.isAnnotationPresent(Transaction.class)) {
+                throw new IllegalStateException("@BatchedUpdates is only supported on @Transaction methods, found on "
+                        + raw_method + " of " + sqlObjectType.getName());
+            }
 
-            if (raw_method.isAnnotationPresent(SqlQuery.class)) {
-                handlers.put(raw_method, new QueryHandler(sqlObjectType, method, ResultReturnThing.forType(method)));
+            if (AsyncHandler.isAsync(raw_method) && raw_method.isAnnotationPresent(SqlQuery.class)) {
+                ResolvedMethod resultMethod = AsyncHandler.resultMethod(method);
+                handlers.put(raw_method, new QueryHandler(sqlObjectType, resultMethod,
+                        ResultReturnThing.forType(resultMethod)));
+            }
+            else if (AsyncHandler.isAsync(raw_method) && raw_method.isAnnotationPresent(SqlUpdate.class)) {
+                handlers.put(raw_method, new CountingUpdateHandler(sqlObjectType, AsyncHandler.resultMethod(method)));
+            }
+            else if (raw_method.isAnnotationPresent(SqlQuery.class) && KeysetPageHandler.isPaged(raw_method)) {
+                handlers.put(raw_method, new KeysetPageHandler(sqlObjectType, method));
+            }
+            else if (raw_method.isAnnotationPresent(SqlQuery.class)) {
+                ResultReturnThing magic = StreamingResultReturnThing.isStreaming(method)
+                        ? new StreamingResultReturnThing(method) : ResultReturnThing.forType(method);
+                handlers.put(raw_method, new QueryHandler(sqlObjectType, method, magic));
             }
             else if (raw_method.isAnnotationPresent(SqlUpdate.class)) {
-                handlers.put(raw_method, new UpdateHandler(sqlObjectType, method));
+                Handler handler = new UpdateHandler(sqlObjectType, method);
+                if (BatchingUpdateHandler.isBatchable(raw_method)) {
+                    handler = new BatchingUpdateHandler(sqlObjectType, method, handler);
+                }
+                handlers.put(raw_method, handler);
             }
             else if (raw_method.isAnnotationPresent(SqlBatch.class)) {
                 handlers.put(raw_method, new BatchHandler(sqlObjectType, method));
             }
+            else if (raw_method.isAnnotationPresent(SqlCopyIn.class)) {
+                handlers.put(raw_method, new CopyInHandler(method));
+            }
+            else if (raw_method.isAnnotationPresent(SqlCopyOut.class)) {
+                handlers.put(raw_method, new CopyOutHandler(raw_method));
+            }
             else if (raw_method.isAnnotationPresent(SqlCall.class)) {
                 handlers.put(raw_method, new CallHandler(sqlObjectType, method));
             }
@@ -168,15 +277,30 @@ public class SqlObjectUtils {
             else if (method.getName().equals("close") && method.getRawMember().getParameterTypes().length == 0) {
                 handlers.put(raw_method, new CloseHandler());
             }
-            else if (raw_method.isAnnotationPresent(Transaction.class)) {
-                handlers.put(raw_method, new PassThroughTransactionHandler(raw_method, raw_method.getAnnotation(Transaction.class)));
-            }
             else if (mixinHandlers.containsKey(raw_method)) {
                 handlers.put(raw_method, mixinHandlers.get(raw_method));
             }
             else {
                 handlers.put(raw_method, new PassThroughHandler(raw_method));
             }
+            profile.handlerBuilt(handlerType(handlers.get(raw_method)), System.nanoTime() - handlerStart);
+        }
+
+        for (Map.Entry<Method, Handler> entry : handlers.entrySet()) {
+            long decorationStart = System.nanoTime();
+            Handler handler = entry.getValue();
+            if (SqlObjectMethods.sqlOf(entry.getKey()) != null) {
+                handler = new SlowQueryHandler(sqlObjectType, resolvedMethods.get(entry.getKey()), handler);
+            }
+            handler = withQueryCache(sqlObjectType, entry.getKey(), handler);
+            if (AsyncHandler.isAsync(entry.getKey())) {
+                handler = new AsyncHandler(handler);
+            }
+            if (handler != entry.getValue()) {
+                // decorations are counted as the outermost one
+                profile.handlerBuilt(handlerType(handler), System.nanoTime() - decorationStart);
+            }
+            entry.setValue(handler);
         }
 
         // this is an implicit mixin, not an explicit one, so we need to *always* add it
@@ -186,8 +310,74 @@ public class SqlObjectUtils {
         handlers.putAll(ToStringHandler.handler(sqlObjectType.getName()));
         handlers.putAll(HashCodeHandler.handler());
 
-        handlersCache.put(sqlObjectType, handlers);
-
         return handlers;
     }
+
+    private static String handlerType(Handler handler) {
+        String name = handler.getClass().getSimpleName();
+        return name.isEmpty() ? handler.getClass().getName() : name;
+    }
+
+    private static Handler withQueryCache(Class<?> sqlObjectType, Method method, Handler handler) {
+        CachedQuery cachedQuery = method.getAnnotation(CachedQuery.class);
+        if (cachedQuery != null) {
+            if (!method.isAnnotationPresent(SqlQuery.class)) {
+                throw new IllegalStateException("@CachedQuery is only supported on @SqlQuery methods, found on "
+                        + method + " of " + sqlObjectType.getName());
+            }
+            if (Iterator.class.isAssignableFrom(method.getReturnType())
+                    || BaseStream.class.isAssignableFrom(method.getReturnType())) {
+                throw new IllegalStateException("@CachedQuery method " + method + " of " + sqlObjectType.getName()
+                        + " can't return an iterator or a stream");
+            }
+            return new CachingQueryHandler(handler, cachedQuery, sqlObjectType.getClassLoader());
+        }
+        WritesTables writesTables = method.getAnnotation(WritesTables.class);
+        if (writesTables != null) {
+            return new InvalidatingHandler(handler, writesTables.value());
+        }
+        return handler;
+    }
+
+    /**
+     * The caches of the sql object types of a class loader.
+     *
+     * Their keys are weak, but values refer to their key class, so they are only dropped by an eviction.
+     * Loading caches are single-flight: concurrent lookups of the same class wait for a single computation.
+     */
+    private static class LoaderCaches {
+        // resolved types are cached by the resolver, so it is dropped with the other caches
+        private final TypeResolver typeResolver = new TypeResolver();
+        private final LoadingCache<Class<?>, Map<Method, Handler>> handlersCache = CacheBuilder.newBuilder()
+                .weakKeys()
+                .build(new CacheLoader<Class<?>, Map<Method, Handler>>() {
+                    @Override
+                    public Map<Method, Handler> load(Class<?> sqlObjectType) {
+                        Map<Method, Handler> handlers = resolveHandlers(sqlObjectType, typeResolver);
+                        SqlObjectCaches.getInstance().handlersAdded(handlers.size());
+                        return handlers;
+                    }
+                });
+        private final LoadingCache<Class<?>, SqlObjectMethods> methodsCache = CacheBuilder.newBuilder()
+                .weakKeys()
+                .build(new CacheLoader<Class<?>, SqlObjectMethods>() {
+                    @Override
+                    public SqlObjectMethods load(Class<?> sqlObjectType) {
+                        return SqlObjectMethods.forProxy(sqlObjectType);
+                    }
+                });
+        // an instance of each proxy class, used as prototype to create the next ones
+        private final ConcurrentMap<Class<?>, Factory> factories = new MapMaker().weakKeys().makeMap();
+
+        private void evicted() {
+            int handlers = 0;
+            for (Map<Method, Handler> typeHandlers : handlersCache.asMap().values()) {
+                handlers += typeHandlers.size();
+            }
+            SqlObjectCaches.getInstance().evicted((int) handlersCache.size(), handlers, factories.size());
+            handlersCache.invalidateAll();
+            methodsCache.invalidateAll();
+            factories.clear();
+        }
+    }
 }
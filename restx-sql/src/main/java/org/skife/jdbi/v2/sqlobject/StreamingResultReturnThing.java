@@ -0,0 +1,190 @@
+package org.skife.jdbi.v2.sqlobject;
+
+import org.skife.jdbi.com.fasterxml.classmate.ResolvedType;
+import org.skife.jdbi.com.fasterxml.classmate.members.ResolvedMethod;
+import org.skife.jdbi.v2.Handle;
+import org.skife.jdbi.v2.Query;
+import org.skife.jdbi.v2.ResultBearing;
+import org.skife.jdbi.v2.ResultIterator;
+import org.skife.jdbi.v2.sqlobject.customizers.FetchSize;
+import restx.sql.SqlStatementSettings;
+
+import java.io.Closeable;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Returns the rows of a query returning an {@link Iterator} or a {@link Stream} as they are fetched,
+ * instead of loading them all in memory.
+ *
+ * The handle is retained until the results are consumed or closed, and when the query is not run in a transaction
+ * it is run in one, ended once closed, so that drivers like PostgreSQL use a server side cursor.
+ * While the results are open, calls made by the same thread share their handle: @Transaction methods can't be
+ * called before they are closed.
+ * Results still open at the end of the request scope of their thread, see
+ * {@link PublicOnDemandHandleDing#endRequestScope()}, are closed there and their transaction rolled back.
+ *
+ * The fetch size is the one of a {@link FetchSize} annotation, or the restx.sql.stream.fetchSize setting defined on
+ * the DBI by SqlModule, see {@link SqlStatementSettings} (1000 if the DBI defines none).
+ */
+class StreamingResultReturnThing extends ResultReturnThing {
+    private static final int DEFAULT_FETCH_SIZE = 1000;
+    private static final AtomicLong retentions = new AtomicLong();
+
+    private final boolean stream;
+    private final Class<?> elementType;
+    private final boolean customFetchSize;
+
+    StreamingResultReturnThing(ResolvedMethod method) {
+        ResolvedType returnType = method.getReturnType();
+        this.stream = returnType.isInstanceOf(Stream.class);
+        this.elementType = returnType.typeParametersFor(stream ? Stream.class : Iterator.class).get(0).getErasedType();
+        this.customFetchSize = method.getRawMember().isAnnotationPresent(FetchSize.class)
+                || method.getRawMember().getDeclaringClass().isAnnotationPresent(FetchSize.class);
+    }
+
+    static boolean isStreaming(ResolvedMethod method) {
+        ResolvedType returnType = method.getReturnType();
+        return returnType.isInstanceOf(Stream.class) || returnType.isInstanceOf(Iterator.class);
+    }
+
+    @Override
+    protected Object result(ResultBearing bearer, HandleDing ding) {
+        if (!customFetchSize && bearer instanceof Query) {
+            Query<?> query = (Query<?>) bearer;
+            Object fetchSize = query.getContext().getAttribute(SqlStatementSettings.STREAM_FETCH_SIZE);
+            query.setFetchSize(fetchSize instanceof Integer ? (Integer) fetchSize : DEFAULT_FETCH_SIZE);
+        }
+
+        String name = "stream-" + retentions.incrementAndGet();
+        ding.retain(name);
+        Handle handle = ding.getHandle();
+        boolean ownTransaction = !handle.isInTransaction();
+        if (ownTransaction) {
+            handle.begin();
+        }
+        ResultIterator<?> rows;
+        try {
+            rows = bearer.iterator();
+        } catch (RuntimeException e) {
+            end(ding, name, handle, ownTransaction, false);
+            throw e;
+        }
+
+        final StreamingIterator iterator = new StreamingIterator(rows, ding, name, handle, ownTransaction);
+        PublicOnDemandHandleDing.resultsOpened(ding, iterator.leftover);
+        if (!stream) {
+            return iterator;
+        }
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED), false)
+                .onClose(new Runnable() {
+                    @Override
+                    public void run() {
+                        iterator.close();
+                    }
+                });
+    }
+
+    @Override
+    protected Class<?> mapTo(ResolvedMethod method) {
+        return elementType;
+    }
+
+    private static void end(HandleDing ding, String name, Handle handle, boolean ownTransaction, boolean commit) {
+        try {
+            if (ownTransaction) {
+                if (commit) {
+                    handle.commit();
+                } else {
+                    handle.rollback();
+                }
+            }
+        } finally {
+            ding.release(name);
+        }
+    }
+
+    private static class StreamingIterator implements ResultIterator<Object> {
+        private final ResultIterator<?> rows;
+        private final HandleDing ding;
+        private final String name;
+        private final Handle handle;
+        private final boolean ownTransaction;
+        // closes the results left open at the end of the request, rolling back their transaction
+        private final Closeable leftover = new Closeable() {
+            @Override
+            public void close() {
+                end(false);
+            }
+
+            @Override
+            public String toString() {
+                return name;
+            }
+        };
+        private boolean closed;
+
+        private StreamingIterator(ResultIterator<?> rows, HandleDing ding, String name, Handle handle,
+                                  boolean ownTransaction) {
+            this.rows = rows;
+            this.ding = ding;
+            this.name = name;
+            this.handle = handle;
+            this.ownTransaction = ownTransaction;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (closed) {
+                return false;
+            }
+            boolean hasNext;
+            try {
+                hasNext = rows.hasNext();
+            } catch (RuntimeException e) {
+                close();
+                throw e;
+            }
+            if (!hasNext) {
+                close();
+            }
+            return hasNext;
+        }
+
+        @Override
+        public Object next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return rows.next();
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void close() {
+            end(true);
+        }
+
+        private void end(boolean commit) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                rows.close();
+            } finally {
+                PublicOnDemandHandleDing.resultsClosed(ding, leftover);
+                StreamingResultReturnThing.end(ding, name, handle, ownTransaction, commit);
+            }
+        }
+    }
+}
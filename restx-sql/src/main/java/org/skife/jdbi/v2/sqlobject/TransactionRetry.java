@@ -0,0 +1,101 @@
+package org.skife.jdbi.v2.sqlobject;
+
+import restx.sql.RetryTransaction;
+
+import java.lang.reflect.Method;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Retry policy of a {@link Transaction} method, declared with {@link RetryTransaction}.
+ */
+final class TransactionRetry {
+    // bounds the walk of the causes, which may loop
+    private static final int MAX_CAUSES = 32;
+
+    private final int maxAttempts;
+    private final long backoff;
+    private final long maxBackoff;
+    private final Set<String> sqlStates;
+
+    private TransactionRetry(RetryTransaction retry) {
+        this.maxAttempts = retry.maxAttempts();
+        this.backoff = retry.backoff();
+        this.maxBackoff = retry.maxBackoff();
+        this.sqlStates = new HashSet<String>(Arrays.asList(retry.sqlStates()));
+    }
+
+    /**
+     * @return the policy declared on the method or else on the sql object type, null if there is none
+     */
+    static TransactionRetry of(Class<?> sqlObjectType, Method method) {
+        RetryTransaction retry = method.getAnnotation(RetryTransaction.class);
+        if (retry == null) {
+            if (!method.isAnnotationPresent(Transaction.class)) {
+                return null;
+            }
+            retry = sqlObjectType.getAnnotation(RetryTransaction.class);
+            if (retry == null) {
+                return null;
+            }
+        } else if (!method.isAnnotationPresent(Transaction.class)) {
+            throw new IllegalStateException("@RetryTransaction requires @Transaction on " + method);
+        }
+        if (retry.maxAttempts() < 1 || retry.backoff() < 0 || retry.maxBackoff() < retry.backoff()) {
+            throw new IllegalStateException("invalid @RetryTransaction on " + method
+                    + ": maxAttempts must be positive and backoff between 0 and maxBackoff");
+        }
+        return new TransactionRetry(retry);
+    }
+
+    /**
+     * @param attempt the number of the failed run, starting at 1
+     * @return how long to wait in milliseconds before running the failed transaction again, -1 if the error must
+     * be thrown: not retryable or last attempt
+     */
+    long delay(RuntimeException error, int attempt) {
+        if (attempt >= maxAttempts || !isRetryable(error)) {
+            return -1;
+        }
+        long cap = Math.min(maxBackoff, backoff << Math.min(attempt - 1, 30));
+        return cap <= 0 ? 0 : ThreadLocalRandom.current().nextLong(cap + 1);
+    }
+
+    /**
+     * Waits before running a failed transaction again, to call once its handle is released.
+     *
+     * @return false if the thread was interrupted, the error must then be thrown
+     */
+    static boolean await(long delay) {
+        if (delay <= 0) {
+            return true;
+        }
+        try {
+            TimeUnit.MILLISECONDS.sleep(delay);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private boolean isRetryable(Throwable error) {
+        int depth = 0;
+        for (Throwable cause = error; cause != null && depth < MAX_CAUSES; cause = cause.getCause(), depth++) {
+            if (cause instanceof SQLException) {
+                // batch failures carry the state of the failed statement in the next exception
+                for (SQLException e = (SQLException) cause; e != null && depth < MAX_CAUSES;
+                     e = e.getNextException(), depth++) {
+                    if (e.getSQLState() != null && sqlStates.contains(e.getSQLState())) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,78 @@
+package org.skife.jdbi.v2.sqlobject;
+
+import org.skife.jdbi.v2.Handle;
+import org.skife.jdbi.v2.PreparedBatch;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Calls to a {@link BatchingUpdateHandler} buffered by the current {@link restx.sql.BatchedUpdates} transaction.
+ *
+ * The arguments of each call are bound when it is buffered, so beans given to {@code @BindBean} parameters can be
+ * modified by the caller before the flush.
+ */
+final class UpdateBatch {
+    private static final ThreadLocal<UpdateBatch> current = new ThreadLocal<UpdateBatch>();
+    // number of batching transactions running, to skip the thread local lookup when there are none
+    private static final AtomicInteger active = new AtomicInteger();
+
+    private BatchingUpdateHandler handler;
+    private Handle handle;
+    private PreparedBatch pending;
+
+    private UpdateBatch() {
+    }
+
+    /**
+     * Runs the body of a transaction, buffering its updates, and flushes them before returning.
+     */
+    static <T> T run(Callable<T> body) throws Exception {
+        UpdateBatch batch = new UpdateBatch();
+        current.set(batch);
+        active.incrementAndGet();
+        try {
+            T result = body.call();
+            batch.flush();
+            return result;
+        } finally {
+            active.decrementAndGet();
+            current.remove();
+        }
+    }
+
+    static UpdateBatch current() {
+        return active.get() == 0 ? null : current.get();
+    }
+
+    /**
+     * Flushes the updates buffered by the current thread, if any, before running another statement.
+     */
+    static void flushCurrent() {
+        UpdateBatch batch = current();
+        if (batch != null) {
+            batch.flush();
+        }
+    }
+
+    void add(BatchingUpdateHandler handler, Handle handle, Object[] args) {
+        if (pending == null || handler != this.handler || handle != this.handle) {
+            flush();
+            this.handler = handler;
+            this.handle = handle;
+            this.pending = handler.prepare(handle, args);
+        }
+        handler.bind(pending, args);
+    }
+
+    private void flush() {
+        if (pending == null) {
+            return;
+        }
+        PreparedBatch batch = pending;
+        pending = null;
+        if (batch.getSize() > 0) {
+            batch.execute();
+        }
+    }
+}
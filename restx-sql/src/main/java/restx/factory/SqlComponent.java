@@ -1,5 +1,16 @@
 package restx.factory;
 
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+
+/**
+ * Marks a SQL object to build as a component.
+ *
+ * Its generated machine builds one instance per warehouse, when the factory first needs it; factories built with
+ * that warehouse as a provider reuse the instance rather than building their own. The instance is called
+ * concurrently, so its state must be thread safe.
+ */
+@Retention(RetentionPolicy.RUNTIME)
 public @interface SqlComponent {
     int priority() default 0;
 
@@ -8,4 +19,24 @@ public @interface SqlComponent {
      * if not defined, the annotated class will be used
      */
     Class<?> asClass() default void.class; // trick to mark default value, as null is not permitted
+
+    /**
+     * @return the maximum number of concurrent calls of the SQL statement methods of this component, 0 for no limit;
+     * a method annotated with {@link restx.sql.Bulkhead} has a limit of its own
+     */
+    int maxConcurrentCalls() default 0;
+
+    /**
+     * @return how long a call over {@link #maxConcurrentCalls()} waits for a running one to end in milliseconds,
+     * before being rejected with a {@link restx.sql.SqlBulkheadFullException}; 0 to reject it at once
+     */
+    long queueTimeout() default 0;
+
+    /**
+     * @return true to route the calls of this component to the {@link restx.sql.SqlShard}s: methods with a
+     * {@link restx.sql.ShardKey} argument run on the shard of their key, the queries returning a collection without
+     * one run on all the shards and return the merged rows; other methods without key must be
+     * {@link restx.sql.AllShards}
+     */
+    boolean sharded() default false;
 }
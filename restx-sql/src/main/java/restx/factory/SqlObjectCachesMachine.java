@@ -0,0 +1,82 @@
+package restx.factory;
+
+import com.google.common.collect.MapMaker;
+import org.skife.jdbi.v2.sqlobject.SqlObjectUtils;
+import restx.sql.SqlObjectCaches;
+
+import java.util.Map;
+
+/**
+ * Evicts the caches of the SQL components of a class loader when the last factory using it is closed,
+ * see {@link SqlObjectUtils#evict(ClassLoader)}.
+ *
+ * The component is started with the factory and remembers the context class loader of that time, the one of the
+ * components in restx dev mode. Its box is disposable, so it is closed with the factory.
+ *
+ * The generated SQL objects keep their caches, metrics and bulkheads in static fields, shared by all the factories
+ * of their class loader: they are only evicted once no started factory uses the loader or one of its descendants.
+ */
+@Machine
+public class SqlObjectCachesMachine extends SingleNameFactoryMachine<AutoStartable> {
+    public static final Name<AutoStartable> NAME = Name.of(AutoStartable.class, "SqlObjectCachesEviction");
+
+    public SqlObjectCachesMachine() {
+        super(0, new StdMachineEngine<AutoStartable>(NAME, 0, DisposableComponentBox.FACTORY) {
+            @Override
+            public BillOfMaterials getBillOfMaterial() {
+                return BillOfMaterials.of();
+            }
+
+            @Override
+            protected AutoStartable doNewComponent(SatisfiedBOM satisfiedBOM) {
+                return new Eviction();
+            }
+        });
+    }
+
+    // number of started factories of each class loader, guarded by itself
+    private static final Map<ClassLoader, int[]> factories = new MapMaker().weakKeys().makeMap();
+
+    private static class Eviction implements AutoStartable, AutoCloseable {
+        private volatile ClassLoader classLoader;
+
+        @Override
+        public void start() {
+            ClassLoader loader = Thread.currentThread().getContextClassLoader();
+            if (loader == null) {
+                return;
+            }
+            synchronized (factories) {
+                int[] count = factories.get(loader);
+                if (count == null) {
+                    factories.put(loader, count = new int[1]);
+                }
+                count[0]++;
+            }
+            classLoader = loader;
+        }
+
+        @Override
+        public void close() {
+            ClassLoader loader = classLoader;
+            if (loader == null) {
+                return;
+            }
+            classLoader = null;
+            synchronized (factories) {
+                int[] count = factories.get(loader);
+                if (count == null || --count[0] > 0) {
+                    return;
+                }
+                factories.remove(loader);
+                for (ClassLoader used : factories.keySet()) {
+                    if (SqlObjectCaches.isDescendant(used, loader)) {
+                        return;
+                    }
+                }
+                // evicted while holding the lock, so a factory starting with the loader registers after it
+                SqlObjectUtils.evict(loader);
+            }
+        }
+    }
+}
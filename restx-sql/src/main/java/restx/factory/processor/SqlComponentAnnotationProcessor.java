@@ -6,13 +6,23 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.samskivert.mustache.Template;
+import org.skife.jdbi.v2.sqlobject.CreateSqlObject;
+import org.skife.jdbi.v2.sqlobject.SqlBatch;
+import org.skife.jdbi.v2.sqlobject.SqlCall;
+import org.skife.jdbi.v2.sqlobject.SqlQuery;
+import org.skife.jdbi.v2.sqlobject.SqlUpdate;
+import org.skife.jdbi.v2.sqlobject.Transaction;
 import restx.common.Mustaches;
 import restx.common.processor.RestxAbstractProcessor;
 import restx.factory.NamedComponent;
 import restx.factory.SqlAlternative;
 import restx.factory.SqlComponent;
 import restx.factory.When;
+import restx.sql.GenerateMapper;
+import restx.sql.SqlCopyIn;
+import restx.sql.SqlCopyOut;
 
 import javax.annotation.processing.RoundEnvironment;
 import javax.annotation.processing.SupportedAnnotationTypes;
@@ -22,34 +32,66 @@ import javax.inject.Named;
 import javax.lang.model.element.Element;
 import javax.lang.model.element.ElementKind;
 import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
 import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.TypeParameterElement;
 import javax.lang.model.element.VariableElement;
 import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.ExecutableType;
+import javax.lang.model.type.TypeKind;
 import javax.lang.model.type.MirroredTypeException;
+import javax.lang.model.type.PrimitiveType;
 import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
 import java.io.IOException;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
 
-@SupportedAnnotationTypes("restx.factory.SqlComponent")
+@SupportedAnnotationTypes({"restx.factory.SqlComponent", "restx.sql.GenerateMapper"})
 @SupportedOptions({"debug"})
 public class SqlComponentAnnotationProcessor extends RestxAbstractProcessor {
 
+    private static final ImmutableMap<String, String> RESULT_SET_GETTERS = ImmutableMap.<String, String>builder()
+            .put("java.lang.String", "getString")
+            .put("int", "getInt").put("java.lang.Integer", "getInt")
+            .put("long", "getLong").put("java.lang.Long", "getLong")
+            .put("double", "getDouble").put("java.lang.Double", "getDouble")
+            .put("float", "getFloat").put("java.lang.Float", "getFloat")
+            .put("short", "getShort").put("java.lang.Short", "getShort")
+            .put("byte", "getByte").put("java.lang.Byte", "getByte")
+            .put("boolean", "getBoolean").put("java.lang.Boolean", "getBoolean")
+            .put("java.math.BigDecimal", "getBigDecimal")
+            .put("java.sql.Timestamp", "getTimestamp").put("java.util.Date", "getTimestamp")
+            .put("java.sql.Date", "getDate").put("java.sql.Time", "getTime")
+            .put("byte[]", "getBytes")
+            .build();
+    private static final ImmutableSet<String> BOXED_TYPES = ImmutableSet.of("java.lang.Integer", "java.lang.Long",
+            "java.lang.Double", "java.lang.Float", "java.lang.Short", "java.lang.Byte", "java.lang.Boolean");
+
     final Template componentMachineTpl;
     final Template conditionalMachineTpl;
+    final Template sqlObjectTpl;
+    final Template resultSetMapperTpl;
 
     public SqlComponentAnnotationProcessor() {
         componentMachineTpl = Mustaches.compile(SqlComponentAnnotationProcessor.class, "SqlComponentMachine.mustache");
         conditionalMachineTpl =
                 Mustaches.compile(SqlComponentAnnotationProcessor.class, "SqlConditionalMachine.mustache");
+        sqlObjectTpl = Mustaches.compile(SqlComponentAnnotationProcessor.class, "SqlObject.mustache");
+        resultSetMapperTpl = Mustaches.compile(SqlComponentAnnotationProcessor.class, "ResultSetMapper.mustache");
     }
 
     @Override
     protected boolean processImpl(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) throws Exception {
         processComponents(roundEnv);
         processAlternatives(roundEnv);
+        processMappers(roundEnv);
 
         return true;
     }
@@ -89,6 +131,7 @@ public class SqlComponentAnnotationProcessor extends RestxAbstractProcessor {
                         component);
 
                 buildInjectableParams(exec, componentClass.parameters);
+                generateSqlObjectFile(componentClass, component);
 
                 When when = component.getAnnotation(When.class);
                 if (when == null) {
@@ -169,6 +212,7 @@ public class SqlComponentAnnotationProcessor extends RestxAbstractProcessor {
                 }
 
                 buildInjectableParams(exec, componentClass.parameters);
+                generateSqlObjectFile(componentClass, component);
 
                 generateMachineFile(componentClass, alternativeToComponentClass, when);
             } catch (Exception e) {
@@ -178,11 +222,30 @@ public class SqlComponentAnnotationProcessor extends RestxAbstractProcessor {
     }
 
 
+    private void processMappers(RoundEnvironment roundEnv) {
+        for (Element elem : roundEnv.getElementsAnnotatedWith(GenerateMapper.class)) {
+            try {
+                if (elem.getKind() != ElementKind.CLASS) {
+                    error("annotating element " + elem + " of type " + elem.getKind().name()
+                            + " with @GenerateMapper is not supported", elem);
+                    continue;
+                }
+                generateMapperFile((TypeElement) elem);
+            } catch (Exception e) {
+                fatalError("error when processing " + elem, e, elem);
+            }
+        }
+    }
+
     private Optional<String> getInjectionName(Named named) {
         return named != null ? Optional.of(named.value()) : Optional.<String>absent();
     }
 
     private void buildInjectableParams(ExecutableElement executableElement, List<InjectableParameter> parameters) {
+        if (executableElement == null) {
+            // interfaces have no constructor
+            return;
+        }
         for (VariableElement p : executableElement.getParameters()) {
             parameters.add(new InjectableParameter(
                     p.asType(),
@@ -224,8 +287,8 @@ public class SqlComponentAnnotationProcessor extends RestxAbstractProcessor {
                 .put("queriesDeclarations", Joiner.on("\n").join(buildQueriesDeclarationsCode(componentClass.parameters)))
                 .put("queries", Joiner.on(",\n").join(buildQueriesNames(componentClass.parameters)) +
                         (componentClass.parameters.isEmpty() ? "" : ","))
-                .put("parameters", Joiner.on(",\n").join(buildParamFromSatisfiedBomCode(componentClass.parameters)))
-                .put("parameterClasses", Joiner.on(",\n").join(buildParamClasses(componentClass.parameters)))
+                .put("sqlObject", componentClass.name + "SqlObject")
+                .put("constructorArguments", buildConstructorArgumentsCode(componentClass.parameters))
                 .build();
 
         generateJavaClass(componentClass.pack + "." + componentClass.name + "FactoryMachine", conditionalMachineTpl, ctx,
@@ -249,8 +312,8 @@ public class SqlComponentAnnotationProcessor extends RestxAbstractProcessor {
                         Joiner.on("\n").join(buildQueriesDeclarationsCode(componentClass.parameters)))
                 .put("queries", Joiner.on(",\n").join(buildQueriesNames(componentClass.parameters)) +
                         (componentClass.parameters.isEmpty() ? "" : ","))
-                .put("parameters", Joiner.on(",\n").join(buildParamFromSatisfiedBomCode(componentClass.parameters)))
-                .put("parameterClasses", Joiner.on(",\n").join(buildParamClasses(componentClass.parameters)))
+                .put("sqlObject", componentClass.name + "SqlObject")
+                .put("constructorArguments", buildConstructorArgumentsCode(componentClass.parameters))
                 .build();
 
         generateJavaClass(componentClass.pack + "." + componentClass.name + "FactoryMachine",
@@ -273,8 +336,8 @@ public class SqlComponentAnnotationProcessor extends RestxAbstractProcessor {
                         Joiner.on("\n").join(buildQueriesDeclarationsCode(componentClass.parameters)))
                 .put("queries", Joiner.on(",\n").join(buildQueriesNames(componentClass.parameters)) +
                         (componentClass.parameters.isEmpty() ? "" : ","))
-                .put("parameters", Joiner.on(",\n").join(buildParamFromSatisfiedBomCode(componentClass.parameters)))
-                .put("parameterClasses", Joiner.on(",\n").join(buildParamClasses(componentClass.parameters)))
+                .put("sqlObject", componentClass.name + "SqlObject")
+                .put("constructorArguments", buildConstructorArgumentsCode(componentClass.parameters))
                 .build();
 
         generateJavaClass(componentClass.pack + "." + componentClass.name + "FactoryMachine", componentMachineTpl, ctx,
@@ -282,6 +345,295 @@ public class SqlComponentAnnotationProcessor extends RestxAbstractProcessor {
 
     }
 
+    private void generateSqlObjectFile(ComponentClass componentClass, TypeElement component) throws IOException {
+        if (component.getModifiers().contains(Modifier.FINAL)) {
+            error("a SqlComponent can't be final, a subclass is generated for it", component);
+            return;
+        }
+        boolean isInterface = component.getKind() == ElementKind.INTERFACE;
+        String sqlObject = componentClass.name + "SqlObject";
+
+        List<String> methods = Lists.newArrayList();
+        List<String> methodsImplementations = Lists.newArrayList();
+        for (ExecutableElement method : findSqlObjectMethods(component)) {
+            if (method.getModifiers().contains(Modifier.ABSTRACT) || isSqlMethod(method)) {
+                methodsImplementations.add(buildHandledMethodCode(component, method, methods.size()));
+            } else if (isInterface) {
+                error("@Transaction is not supported on default methods of a SqlComponent interface", method);
+                continue;
+            } else {
+                methodsImplementations.add(buildTransactionMethodCode(component, sqlObject, method, methods.size()));
+            }
+            methods.add(buildMethodLookupCode(method));
+        }
+
+        List<String> constructorParameters = Lists.newArrayList("PublicOnDemandHandleDing handleDing");
+        List<String> superArguments = Lists.newArrayList();
+        for (int i = 0; i < componentClass.parameters.size(); i++) {
+            constructorParameters.add(componentClass.parameters.get(i).baseType + " arg" + i);
+            superArguments.add("arg" + i);
+        }
+
+        ImmutableMap<String, String> ctx = ImmutableMap.<String, String>builder()
+                .put("package", componentClass.pack)
+                .put("sqlObject", sqlObject)
+                .put("componentFqcn", componentClass.fqcn)
+                .put("inheritance", isInterface ? "implements" : "extends")
+                .put("methods", methods.isEmpty() ? "" : ",\n            " + Joiner.on(",\n            ").join(methods))
+                .put("constructorParameters", Joiner.on(", ").join(constructorParameters))
+                .put("superArguments", Joiner.on(", ").join(superArguments))
+                .put("methodsImplementations", Joiner.on("\n").join(methodsImplementations))
+                .build();
+
+        generateJavaClass(componentClass.pack + "." + sqlObject, sqlObjectTpl, ctx,
+                Collections.singleton(componentClass.originatingElement));
+    }
+
+    private void generateMapperFile(TypeElement bean) throws IOException {
+        if (bean.getModifiers().contains(Modifier.ABSTRACT) || !bean.getModifiers().contains(Modifier.PUBLIC)
+                || (bean.getEnclosingElement().getKind() != ElementKind.PACKAGE
+                        && !bean.getModifiers().contains(Modifier.STATIC))) {
+            error("a @GenerateMapper bean must be a public concrete top level or static class", bean);
+            return;
+        }
+        boolean noArgConstructor = false;
+        for (ExecutableElement constructor : ElementFilter.constructorsIn(bean.getEnclosedElements())) {
+            noArgConstructor |= constructor.getParameters().isEmpty()
+                    && constructor.getModifiers().contains(Modifier.PUBLIC);
+        }
+        if (!noArgConstructor) {
+            error("a @GenerateMapper bean must have a public no argument constructor", bean);
+            return;
+        }
+
+        // properties set by a public setter, or else by a public field, by lower case name
+        Map<String, String> assignments = Maps.newLinkedHashMap();
+        List<? extends Element> members = processingEnv.getElementUtils().getAllMembers(bean);
+        for (ExecutableElement method : ElementFilter.methodsIn(members)) {
+            String name = method.getSimpleName().toString();
+            if (name.length() > 3 && name.startsWith("set") && method.getParameters().size() == 1
+                    && method.getModifiers().contains(Modifier.PUBLIC)
+                    && !method.getModifiers().contains(Modifier.STATIC)) {
+                String property = name.substring(3).toLowerCase(Locale.ROOT);
+                if (!assignments.containsKey(property)) {
+                    assignments.put(property, buildColumnReadCode(
+                            method.getParameters().get(0).asType(), "bean." + name + "(%s);"));
+                }
+            }
+        }
+        for (VariableElement field : ElementFilter.fieldsIn(members)) {
+            String property = field.getSimpleName().toString().toLowerCase(Locale.ROOT);
+            if (field.getModifiers().contains(Modifier.PUBLIC) && !field.getModifiers().contains(Modifier.STATIC)
+                    && !field.getModifiers().contains(Modifier.FINAL) && !assignments.containsKey(property)) {
+                assignments.put(property, buildColumnReadCode(field.asType(), "bean." + field.getSimpleName() + " = %s;"));
+            }
+        }
+
+        List<String> properties = Lists.newArrayList();
+        List<String> code = Lists.newArrayList();
+        for (Map.Entry<String, String> assignment : assignments.entrySet()) {
+            int index = properties.size();
+            properties.add("\"" + assignment.getKey() + "\"");
+            code.add(String.format("        if (columns[%d] > 0) {\n            %s\n        }",
+                    index, assignment.getValue().replace("{column}", "columns[" + index + "]")));
+        }
+
+        String pack = getPackage(bean).getQualifiedName().toString();
+        String mapper = bean.getSimpleName() + "ResultSetMapper";
+        ImmutableMap<String, String> ctx = ImmutableMap.<String, String>builder()
+                .put("package", pack)
+                .put("mapper", mapper)
+                .put("beanFqcn", bean.getQualifiedName().toString())
+                .put("properties", Joiner.on(", ").join(properties))
+                .put("assignments", Joiner.on("\n").join(code))
+                .build();
+
+        generateJavaClass(pack + "." + mapper, resultSetMapperTpl, ctx, Collections.<Element>singleton(bean));
+    }
+
+    /**
+     * Builds the code reading the column of a property, {column} standing for its index, with the typed getter of the
+     * result set when there is one.
+     */
+    private String buildColumnReadCode(TypeMirror type, String assignment) {
+        Types types = processingEnv.getTypeUtils();
+        String erasure = types.erasure(type).toString();
+        String getter = RESULT_SET_GETTERS.get(erasure);
+        if (getter != null && !type.getKind().isPrimitive() && BOXED_TYPES.contains(erasure)) {
+            // getters of primitives return 0 or false for NULL
+            return String.format("%s value = r.%s({column});\n            ", type, getter)
+                    + String.format(assignment, "r.wasNull() ? null : value");
+        }
+        if (getter != null) {
+            return String.format(assignment, "r." + getter + "({column})");
+        }
+        Element element = types.asElement(type);
+        if (element != null && element.getKind() == ElementKind.ENUM) {
+            return "String value = r.getString({column});\n            "
+                    + String.format(assignment, "value == null ? null : " + erasure + ".valueOf(value)");
+        }
+        return String.format(assignment, "(" + type + ") r.getObject({column})");
+    }
+
+    /**
+     * Lists the methods which have to be implemented by the generated sql object: the abstract ones and the ones
+     * annotated with a jdbi sql annotation are dispatched to their handler, the {@link Transaction} ones are wrapped.
+     */
+    private List<ExecutableElement> findSqlObjectMethods(TypeElement component) {
+        Elements elements = processingEnv.getElementUtils();
+        List<ExecutableElement> members = ElementFilter.methodsIn(elements.getAllMembers(component));
+
+        List<ExecutableElement> methods = Lists.newArrayList();
+        for (ExecutableElement method : members) {
+            Set<Modifier> modifiers = method.getModifiers();
+            if (modifiers.contains(Modifier.STATIC) || modifiers.contains(Modifier.PRIVATE)
+                    || modifiers.contains(Modifier.FINAL)) {
+                continue;
+            }
+            if (!modifiers.contains(Modifier.ABSTRACT) && !isSqlMethod(method)
+                    && method.getAnnotation(Transaction.class) == null) {
+                continue;
+            }
+            if (isOverridden(method, members, component)) {
+                continue;
+            }
+            methods.add(method);
+        }
+        return methods;
+    }
+
+    private boolean isOverridden(ExecutableElement method, List<ExecutableElement> members, TypeElement component) {
+        Elements elements = processingEnv.getElementUtils();
+        for (ExecutableElement other : members) {
+            if (other != method && elements.overrides(other, method, component)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isSqlMethod(ExecutableElement method) {
+        return method.getAnnotation(SqlQuery.class) != null
+                || method.getAnnotation(SqlUpdate.class) != null
+                || method.getAnnotation(SqlBatch.class) != null
+                || method.getAnnotation(SqlCall.class) != null
+                || method.getAnnotation(SqlCopyIn.class) != null
+                || method.getAnnotation(SqlCopyOut.class) != null
+                || method.getAnnotation(CreateSqlObject.class) != null;
+    }
+
+    private String buildMethodLookupCode(ExecutableElement method) {
+        Types types = processingEnv.getTypeUtils();
+        StringBuilder code = new StringBuilder(String.format("SqlObjectMethods.method(%s.class, \"%s\"",
+                ((TypeElement) method.getEnclosingElement()).getQualifiedName(), method.getSimpleName()));
+        for (VariableElement parameter : method.getParameters()) {
+            code.append(", ").append(types.erasure(parameter.asType())).append(".class");
+        }
+        return code.append(")").toString();
+    }
+
+    private String buildHandledMethodCode(TypeElement component, ExecutableElement method, int index) {
+        ExecutableType type = asMemberOf(component, method);
+        String invocation = String.format("METHODS.invoke(handleDing, %d, this, new Object[]{%s})",
+                index, Joiner.on(", ").join(buildArgumentNames(method)));
+
+        StringBuilder code = new StringBuilder(buildMethodSignatureCode(method, type, false)).append(" {\n");
+        if (type.getReturnType().getKind() == TypeKind.VOID) {
+            code.append(String.format("        %s;\n", invocation));
+        } else {
+            code.append(String.format("        return (%s) %s;\n", boxedType(type.getReturnType()), invocation));
+        }
+        return code.append("    }\n").toString();
+    }
+
+    private String buildTransactionMethodCode(TypeElement component, String sqlObject,
+                                              ExecutableElement method, int index) {
+        ExecutableType type = asMemberOf(component, method);
+        boolean isVoid = type.getReturnType().getKind() == TypeKind.VOID;
+        String resultType = isVoid ? "java.lang.Object" : boxedType(type.getReturnType());
+        String superCall = String.format("%s.super.%s(%s)",
+                sqlObject, method.getSimpleName(), Joiner.on(", ").join(buildArgumentNames(method)));
+
+        StringBuilder code = new StringBuilder(buildMethodSignatureCode(method, type, true)).append(" {\n");
+        code.append(String.format("        %sMETHODS.inTransaction(handleDing, %d, new Object[]{%s}, " +
+                        "new java.util.concurrent.Callable<%s>() {\n",
+                isVoid ? "" : "return ", index, Joiner.on(", ").join(buildArgumentNames(method)), resultType));
+        code.append("            @Override\n");
+        code.append(String.format("            public %s call() throws Exception {\n", resultType));
+        if (isVoid) {
+            code.append(String.format("                %s;\n", superCall));
+            code.append("                return null;\n");
+        } else {
+            code.append(String.format("                return %s;\n", superCall));
+        }
+        code.append("            }\n");
+        code.append("        });\n");
+        return code.append("    }\n").toString();
+    }
+
+    private String buildMethodSignatureCode(ExecutableElement method, ExecutableType type, boolean finalParameters) {
+        StringBuilder code = new StringBuilder("    @Override\n    ");
+        if (method.getModifiers().contains(Modifier.PUBLIC)) {
+            code.append("public ");
+        } else if (method.getModifiers().contains(Modifier.PROTECTED)) {
+            code.append("protected ");
+        }
+
+        if (!method.getTypeParameters().isEmpty()) {
+            List<String> typeParameters = Lists.newArrayList();
+            for (TypeParameterElement typeParameter : method.getTypeParameters()) {
+                List<String> bounds = Lists.newArrayList();
+                for (TypeMirror bound : typeParameter.getBounds()) {
+                    if (!bound.toString().equals(Object.class.getName())) {
+                        bounds.add(bound.toString());
+                    }
+                }
+                typeParameters.add(typeParameter.getSimpleName()
+                        + (bounds.isEmpty() ? "" : " extends " + Joiner.on(" & ").join(bounds)));
+            }
+            code.append("<").append(Joiner.on(", ").join(typeParameters)).append("> ");
+        }
+
+        List<String> parameters = Lists.newArrayList();
+        List<String> argumentNames = buildArgumentNames(method);
+        for (int i = 0; i < argumentNames.size(); i++) {
+            parameters.add((finalParameters ? "final " : "") + type.getParameterTypes().get(i) + " " + argumentNames.get(i));
+        }
+        code.append(type.getReturnType()).append(" ").append(method.getSimpleName())
+                .append("(").append(Joiner.on(", ").join(parameters)).append(")");
+
+        if (!type.getThrownTypes().isEmpty()) {
+            code.append(" throws ").append(Joiner.on(", ").join(type.getThrownTypes()));
+        }
+        return code.toString();
+    }
+
+    private List<String> buildArgumentNames(ExecutableElement method) {
+        List<String> names = Lists.newArrayList();
+        for (int i = 0; i < method.getParameters().size(); i++) {
+            names.add("p" + i);
+        }
+        return names;
+    }
+
+    private ExecutableType asMemberOf(TypeElement component, ExecutableElement method) {
+        return (ExecutableType) processingEnv.getTypeUtils().asMemberOf((DeclaredType) component.asType(), method);
+    }
+
+    private String boxedType(TypeMirror type) {
+        if (type.getKind().isPrimitive()) {
+            return processingEnv.getTypeUtils().boxedClass((PrimitiveType) type).getQualifiedName().toString();
+        }
+        return type.toString();
+    }
+
+    private String buildConstructorArgumentsCode(List<InjectableParameter> parameters) {
+        List<String> arguments = Lists.newArrayList(
+                "(PublicOnDemandHandleDing) ((NamedComponent) satisfiedBOM.getOne(handleDing).get()).getComponent()");
+        arguments.addAll(buildParamFromSatisfiedBomCode(parameters));
+        return Joiner.on(",\n").join(arguments);
+    }
+
     private List<String> buildQueriesDeclarationsCode(List<InjectableParameter> parameters) {
         List<String> parametersCode = Lists.newArrayList();
         for (InjectableParameter parameter : parameters) {
@@ -306,18 +658,6 @@ public class SqlComponentAnnotationProcessor extends RestxAbstractProcessor {
         return parametersCode;
     }
 
-    private List<String> buildParamClasses(List<InjectableParameter> parameters) {
-        List<String> parameterClasses = Lists.newArrayList();
-        for (InjectableParameter parameter : parameters) {
-            if (parameter.baseType instanceof DeclaredType) {
-                parameterClasses.add(((DeclaredType) parameter.baseType).asElement() + ".class");
-            } else {
-                parameterClasses.add(parameter.baseType.toString() + ".class");
-            }
-        }
-        return parameterClasses;
-    }
-
     private static class ComponentClass {
 
         final String fqcn;
@@ -0,0 +1,44 @@
+package org.skife.jdbi.v2.sqlobject;
+
+import org.junit.Test;
+
+import java.sql.Timestamp;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+public class CopyInHandlerTest {
+
+    @Test
+    public void should_escape_the_separators_of_the_text_format() {
+        assertEquals("tab\\there, new\\nline, return\\r and back\\\\slash",
+                encode("tab\there, new\nline, return\r and back\\slash", ZoneOffset.UTC));
+    }
+
+    @Test
+    public void should_encode_nulls_bytes_and_enums() {
+        assertEquals("\\N", encode(null, ZoneOffset.UTC));
+        assertEquals("\\\\x00ff1a", encode(new byte[]{0, (byte) 0xff, 0x1a}, ZoneOffset.UTC));
+        assertEquals("SECONDS", encode(TimeUnit.SECONDS, ZoneOffset.UTC));
+        assertEquals("42", encode(42L, ZoneOffset.UTC));
+    }
+
+    @Test
+    public void should_encode_dates_as_local_date_and_time_with_their_offset() {
+        Timestamp timestamp = new Timestamp(1500000000123L);
+        timestamp.setNanos(123456789);
+
+        assertEquals("2017-07-14 02:40:00.123456+00:00", encode(timestamp, ZoneOffset.UTC));
+        assertEquals("2017-07-14 16:40:00.123000+14:00",
+                encode(new Date(1500000000123L), ZoneId.of("Pacific/Kiritimati")));
+    }
+
+    private static String encode(Object value, ZoneId zone) {
+        StringBuilder out = new StringBuilder();
+        CopyInHandler.encodeValue(value, zone, out);
+        return out.toString();
+    }
+}
@@ -0,0 +1,119 @@
+package org.skife.jdbi.v2.sqlobject;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.skife.jdbi.v2.DBI;
+import org.skife.jdbi.v2.Handle;
+import restx.sql.SqlCopyIn;
+import restx.sql.SqlCopyOut;
+
+import java.io.StringWriter;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Copies rows in and out of a Postgres database, given by the {@code restx.sql.test.url}, {@code restx.sql.test.user}
+ * and {@code restx.sql.test.password} system properties; skipped when no database is configured.
+ */
+public class CopyRoundTripTest {
+
+    public interface CopyDao {
+        @SqlCopyIn(table = "restx_copy_test", columns = {"id", "label", "created", "updated"})
+        long copyIn(Iterable<Row> rows);
+
+        @SqlUpdate("INSERT INTO restx_copy_test (id, updated) VALUES (:id, :updated)")
+        void insert(@Bind("id") int id, @Bind("updated") Timestamp updated);
+
+        @SqlCopyOut("COPY (SELECT id, label FROM restx_copy_test ORDER BY id) TO STDOUT")
+        long copyOut(StringWriter writer);
+
+        @SqlQuery("SELECT created FROM restx_copy_test WHERE id = :id")
+        Timestamp created(@Bind("id") int id);
+
+        @SqlQuery("SELECT updated FROM restx_copy_test WHERE id = :id")
+        Timestamp updated(@Bind("id") int id);
+
+        @SqlQuery("SELECT COUNT(*) FROM restx_copy_test a JOIN restx_copy_test b ON a.updated = b.updated"
+                + " WHERE a.id = :a AND b.id = :b")
+        int sameUpdated(@Bind("a") int a, @Bind("b") int b);
+    }
+
+    public static class Row {
+        public final int id;
+        public final String label;
+        public final Date created;
+        public final Timestamp updated;
+
+        Row(int id, String label, Date created, Timestamp updated) {
+            this.id = id;
+            this.label = label;
+            this.created = created;
+            this.updated = updated;
+        }
+    }
+
+    private DBI dbi;
+    private TimeZone defaultTimeZone;
+
+    @Before
+    public void setUp() {
+        String url = System.getProperty("restx.sql.test.url");
+        Assume.assumeTrue("no test database configured", url != null && url.startsWith("jdbc:postgresql:"));
+        dbi = new DBI(url, System.getProperty("restx.sql.test.user"), System.getProperty("restx.sql.test.password"));
+        Handle handle = dbi.open();
+        try {
+            handle.execute("DROP TABLE IF EXISTS restx_copy_test");
+            handle.execute("CREATE TABLE restx_copy_test (id int PRIMARY KEY, label text, created timestamptz,"
+                    + " updated timestamp)");
+        } finally {
+            handle.close();
+        }
+        defaultTimeZone = TimeZone.getDefault();
+    }
+
+    @After
+    public void tearDown() {
+        if (dbi == null) {
+            return;
+        }
+        TimeZone.setDefault(defaultTimeZone);
+        Handle handle = dbi.open();
+        try {
+            handle.execute("DROP TABLE IF EXISTS restx_copy_test");
+        } finally {
+            handle.close();
+        }
+    }
+
+    @Test
+    public void should_copy_rows_in_and_out() {
+        // a default time zone far from UTC, with which both columns must still get the right values
+        TimeZone.setDefault(TimeZone.getTimeZone("Pacific/Kiritimati"));
+        CopyDao dao = SqlObjectUtils.buildSqlObject(CopyDao.class, new PublicOnDemandHandleDing(dbi),
+                new Class<?>[0], new Object[0]);
+        Date created = new Date(1500000000123L);
+        Timestamp updated = new Timestamp(1500000000456L);
+        List<Row> rows = Arrays.asList(
+                new Row(1, "plain", created, updated),
+                new Row(2, "tab\there, new\nline and back\\slash", null, null),
+                new Row(3, null, created, null));
+
+        assertEquals(3, dao.copyIn(rows));
+
+        StringWriter out = new StringWriter();
+        assertEquals(3, dao.copyOut(out));
+        assertEquals("1\tplain\n2\ttab\\there, new\\nline and back\\\\slash\n3\t\\N\n", out.toString());
+        assertEquals(created.getTime(), dao.created(1).getTime());
+        // a timestamp column gets the local date and time, as when the value is bound with JDBC
+        assertEquals(updated, dao.updated(1));
+        dao.insert(4, updated);
+        assertEquals(1, dao.sameUpdated(1, 4));
+    }
+}
@@ -0,0 +1,72 @@
+package org.skife.jdbi.v2.sqlobject;
+
+import org.junit.Test;
+import restx.sql.InvalidCursorException;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class KeysetCursorTest {
+
+    @Test
+    public void should_decode_the_encoded_values_with_their_type() {
+        Timestamp timestamp = new Timestamp(1500000000123L);
+        timestamp.setNanos(123456789);
+        Object[] values = {
+                42L, 7, "label", true, new BigDecimal("12.50"), UUID.fromString("b3e2e0a4-54b4-4b8e-9c3d-8e4a5c6d7f80"),
+                new java.sql.Date(1500000000000L), timestamp, null
+        };
+
+        Object[] decoded = KeysetCursor.decode(KeysetCursor.encode(17, values), 17, values.length);
+
+        assertArrayEquals(values, decoded);
+        assertEquals(Integer.class, decoded[1].getClass());
+        assertEquals(123456789, ((Timestamp) decoded[7]).getNanos());
+    }
+
+    @Test
+    public void should_encode_narrow_numbers_enums_and_dates_as_their_bound_type() {
+        Object[] decoded = KeysetCursor.decode(
+                KeysetCursor.encode(1, new Object[]{(short) 3, TimeUnit.SECONDS, new Date(1000L)}), 1, 3);
+
+        assertEquals(Arrays.<Object>asList(3, "SECONDS", new Timestamp(1000L)), Arrays.asList(decoded));
+    }
+
+    @Test
+    public void should_reject_the_cursors_of_other_methods() {
+        String cursor = KeysetCursor.encode(1, new Object[]{1L});
+
+        try {
+            KeysetCursor.decode(cursor, 2, 1);
+            fail("the cursor should have been rejected");
+        } catch (InvalidCursorException e) {
+            assertEquals("page cursor " + cursor + " was not returned by this query", e.getMessage());
+        }
+    }
+
+    @Test
+    public void should_reject_malformed_cursors() {
+        String twoKeys = KeysetCursor.encode(1, new Object[]{1L, 2L});
+        for (String cursor : new String[]{"@@", twoKeys.substring(0, twoKeys.length() - 2), twoKeys}) {
+            try {
+                KeysetCursor.decode(cursor, 1, cursor.equals(twoKeys) ? 1 : 2);
+                fail("cursor " + cursor + " should have been rejected");
+            } catch (InvalidCursorException e) {
+                assertEquals("malformed page cursor " + cursor, e.getMessage());
+            }
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void should_not_encode_unsupported_key_types() {
+        KeysetCursor.encode(1, new Object[]{new Object()});
+    }
+}
@@ -0,0 +1,85 @@
+package org.skife.jdbi.v2.sqlobject;
+
+import org.junit.Test;
+import restx.sql.RetryTransaction;
+
+import java.sql.BatchUpdateException;
+import java.sql.SQLException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TransactionRetryTest {
+
+    @RetryTransaction(maxAttempts = 5, backoff = 10, maxBackoff = 30)
+    public interface Retried {
+        @Transaction
+        void inherited();
+
+        @RetryTransaction(maxAttempts = 2, sqlStates = "40001")
+        @Transaction
+        void declared();
+
+        void notTransactional();
+    }
+
+    public interface NotRetried {
+        @Transaction
+        void run();
+    }
+
+    public interface Invalid {
+        @RetryTransaction
+        void run();
+    }
+
+    @Test
+    public void should_bound_the_delay_by_the_exponential_backoff() throws Exception {
+        TransactionRetry retry = TransactionRetry.of(Retried.class, Retried.class.getMethod("inherited"));
+        RuntimeException error = failure("40P01");
+
+        long[] caps = {10, 20, 30, 30};
+        for (int attempt = 1; attempt <= caps.length; attempt++) {
+            for (int i = 0; i < 100; i++) {
+                long delay = retry.delay(error, attempt);
+                assertTrue(delay + " after attempt " + attempt, delay >= 0 && delay <= caps[attempt - 1]);
+            }
+        }
+        assertEquals(-1, retry.delay(error, 5));
+    }
+
+    @Test
+    public void should_only_retry_the_declared_states() throws Exception {
+        TransactionRetry retry = TransactionRetry.of(Retried.class, Retried.class.getMethod("declared"));
+
+        assertEquals(-1, retry.delay(failure("40P01"), 1));
+        assertEquals(-1, retry.delay(new IllegalStateException("no SQL state"), 1));
+        assertTrue(retry.delay(failure("40001"), 1) >= 0);
+        assertEquals(-1, retry.delay(failure("40001"), 2));
+    }
+
+    @Test
+    public void should_find_the_state_of_batch_failures_in_the_next_exception() throws Exception {
+        TransactionRetry retry = TransactionRetry.of(Retried.class, Retried.class.getMethod("declared"));
+        BatchUpdateException batch = new BatchUpdateException("batch failed", "08000", new int[0]);
+        batch.setNextException(new SQLException("could not serialize access", "40001"));
+
+        assertTrue(retry.delay(new IllegalStateException(batch), 1) >= 0);
+    }
+
+    @Test
+    public void should_have_no_policy_without_annotation_or_transaction() throws Exception {
+        assertNull(TransactionRetry.of(NotRetried.class, NotRetried.class.getMethod("run")));
+        assertNull(TransactionRetry.of(Retried.class, Retried.class.getMethod("notTransactional")));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void should_reject_retries_of_methods_without_transaction() throws Exception {
+        TransactionRetry.of(Invalid.class, Invalid.class.getMethod("run"));
+    }
+
+    private static RuntimeException failure(String sqlState) {
+        return new IllegalStateException(new SQLException("failed", sqlState));
+    }
+}